@@ -0,0 +1,327 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * 竞技场模式：一张地图上有很多条AI蛇。每个tick分两个阶段：
+ * 1. 决策阶段：所有蛇在只读的世界上并行算出下一步方向（每条蛇有自己的随机流）；
+ * 2. 结算阶段：按固定顺序移动所有蛇，再逐个判定蛇头格子。
+ * 所有蛇共用世界的占用计数表，全部移动完才判定，所以结果与线程调度和判定顺序无关：
+ * 两个蛇头进同一格（包括抢同一个食物）计数大于1，双方都死；
+ * 撞到任何一条蛇的身体都会死；别的蛇这一步让出的尾巴格子可以走。
+ * 决策是tick的大头：贪心策略对每个候选方向都扫一遍所有食物，食物数与蛇数同阶，
+ * 整个决策阶段是 O(蛇数²)，所以活着的蛇足够多时交给线程池摊到所有核上；
+ * 移动和结算只有 O(蛇数)，始终在当前线程上按编号顺序执行
+ */
+public class ArenaLoop {
+    // 活着的蛇少于这个数时决策阶段不走线程池（任务切分的开销比省下的多）
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 64;
+
+    private final World world;
+    private final FoodSpawner foodSpawner;
+    private final ForkJoinPool pool;
+    private final List<Contestant> contestants = new ArrayList<>();
+    private final List<Contestant> contestantsView = Collections.unmodifiableList(contestants);
+    private final int targetFoods;
+
+    private final int[] headCount;      // 本tick落在每格的蛇头数
+    private final Direction[] intents;
+    private long tickCount = 0;
+    private int aliveCount = 0;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * 场上的一条蛇及其策略、随机流和计分
+     */
+    public static class Contestant {
+        private final int id;
+        private final Snake snake;
+        private final DirectionPolicy policy;
+        private final RandomGenerator random;
+        private final ScoreManager scoreManager = new ScoreManager();
+        private boolean alive = true;
+        private String deathReason;
+        private long deathTick = -1;
+        private int finalLength;            // 死亡那一刻的长度和分数（撤下后蛇身已被释放）
+        private int finalScore;
+
+        Contestant(int id, Snake snake, DirectionPolicy policy, RandomGenerator random) {
+            this.id = id;
+            this.snake = snake;
+            this.policy = policy;
+            this.random = random;
+            scoreManager.setVerbose(false);
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Snake getSnake() {
+            return snake;
+        }
+
+        public ScoreManager getScoreManager() {
+            return scoreManager;
+        }
+
+        public boolean isAlive() {
+            return alive;
+        }
+
+        public String getDeathReason() {
+            return deathReason;
+        }
+
+        public long getDeathTick() {
+            return deathTick;
+        }
+
+        /**
+         * 活着时是当前长度，死了是死亡时的长度
+         */
+        public int getLength() {
+            return alive ? snake.getLength() : finalLength;
+        }
+
+        public int getScore() {
+            return alive ? scoreManager.getScore() : finalScore;
+        }
+    }
+
+    /**
+     * 用种子建一个竞技场：先生成障碍物，再在空地上随机放 snakeCount 条长度为3的蛇
+     * @param parallelism 决策阶段的线程数，1 表示全部在当前线程上算
+     */
+    public ArenaLoop(int width, int height, int snakeCount, long seed, int parallelism,
+                     Supplier<DirectionPolicy> policyFactory) {
+        WorldManager worldManager = new WorldManager(width, height, seed);
+        worldManager.setVerbose(false);
+        this.world = worldManager.getWorld();
+        this.foodSpawner = worldManager.getFoodSpawner();
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.targetFoods = Math.max(5, snakeCount);
+        this.headCount = new int[width * height];
+
+        int maxObstacleCells = (int) (width * height * 0.10);
+        world.setObstacles(worldManager.getObstacleGenerator()
+                .generateConnected(maxObstacleCells, new boolean[width * height]));
+
+        RandomGenerator placement = worldManager.newRandomStream();
+        for (int i = 0; i < snakeCount; i++) {
+            Snake snake = placeSnake(placement);
+            if (snake == null) {
+                break; // 地图放不下了
+            }
+            world.addSnake(snake);
+            contestants.add(new Contestant(i, snake, policyFactory.get(), worldManager.newRandomStream()));
+        }
+        aliveCount = contestants.size();
+        intents = new Direction[contestants.size()];
+        topUpFoods();
+    }
+
+    /**
+     * 随机找一个能放下长度为3的直线蛇、且前方一格也空着的位置
+     */
+    private Snake placeSnake(RandomGenerator random) {
+        Direction[] dirs = Direction.values();
+        for (int attempt = 0; attempt < 100; attempt++) {
+            Point start = world.randomFreeCell(random);
+            if (start == null) {
+                return null;
+            }
+            Direction dir = dirs[random.nextInt(dirs.length)];
+            boolean fits = world.isEmpty(start.x + dir.dx, start.y + dir.dy);
+            for (int i = 1; i < 3 && fits; i++) {
+                fits = world.isEmpty(start.x - i * dir.dx, start.y - i * dir.dy);
+            }
+            if (fits) {
+                return new Snake(start, dir, 3, world.getSnakeCells());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 推进一个tick
+     * @return 还有蛇活着时返回true
+     */
+    public boolean tick() {
+        int n = contestants.size();
+
+        // 1. 决策：只读世界，可以并行
+        if (pool != null && aliveCount >= parallelThreshold) {
+            pool.submit(() -> IntStream.range(0, n).parallel().forEach(this::decide)).join();
+        } else {
+            for (int i = 0; i < n; i++) {
+                decide(i);
+            }
+        }
+
+        // 2. 按编号顺序移动所有活着的蛇
+        for (int i = 0; i < n; i++) {
+            Contestant c = contestants.get(i);
+            if (!c.alive) {
+                continue;
+            }
+            c.snake.changeDirection(intents[i]);
+            c.snake.move();
+            int x = c.snake.getHeadX();
+            int y = c.snake.getHeadY();
+            if (world.inBounds(x, y)) {
+                headCount[y * world.getWidth() + x]++;
+            }
+        }
+
+        // 3. 全部移动完再判定，先记下死亡，最后统一撤下
+        for (int i = 0; i < n; i++) {
+            Contestant c = contestants.get(i);
+            if (c.alive) {
+                resolve(c);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            Contestant c = contestants.get(i);
+            if (!c.alive && c.deathTick != tickCount) {
+                continue;
+            }
+            int x = c.snake.getHeadX();
+            int y = c.snake.getHeadY();
+            if (world.inBounds(x, y)) {
+                headCount[y * world.getWidth() + x] = 0;
+            }
+            if (!c.alive) {
+                world.removeSnake(c.snake);
+            }
+        }
+
+        topUpFoods();
+        tickCount++;
+        return aliveCount > 0;
+    }
+
+    private void decide(int i) {
+        Contestant c = contestants.get(i);
+        intents[i] = c.alive ? c.policy.choose(world, c.snake, c.random) : null;
+    }
+
+    private void resolve(Contestant c) {
+        Snake snake = c.snake;
+        switch (world.classifyHead(snake)) {
+            case OUT_OF_BOUNDS:
+                kill(c, "撞墙了!");
+                break;
+            case SNAKE_BODY: {
+                int head = snake.getHeadY() * world.getWidth() + snake.getHeadX();
+                kill(c, headCount[head] > 1 ? "与其他蛇迎头相撞!" : "撞到蛇身了!");
+                break;
+            }
+            case OBSTACLE:
+                kill(c, "撞到障碍物了!");
+                break;
+            case FOOD:
+                // 能走到这里说明这一格只有它一个蛇头，不存在抢食
+                Food food = world.getFoodAt(snake.getHeadX(), snake.getHeadY());
+                c.scoreManager.eatFood(food.getType());
+                snake.grow(food.getType().getGrowth());
+                world.removeFoodAt(food.getPosition());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void kill(Contestant c, String reason) {
+        c.alive = false;
+        c.deathReason = reason;
+        c.deathTick = tickCount;
+        c.finalLength = c.snake.getLength();
+        c.finalScore = c.scoreManager.getScore();
+        aliveCount--;
+    }
+
+    private void topUpFoods() {
+        while (world.getFoods().size() < targetFoods) {
+            Food food = foodSpawner.spawnAnywhere(world);
+            if (food == null) {
+                return;
+            }
+            world.addFood(food);
+        }
+    }
+
+    /**
+     * 一直跑到没有蛇活着或达到 maxTicks
+     * @return 实际执行的tick数
+     */
+    public long run(long maxTicks) {
+        long start = tickCount;
+        while (tickCount - start < maxTicks && tick()) {
+            // 继续推进
+        }
+        return tickCount - start;
+    }
+
+    /**
+     * 活着的蛇至少有这么多条时决策阶段才并行；传 Integer.MAX_VALUE 则总是在当前线程上算
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public List<Contestant> getContestants() {
+        return contestantsView;
+    }
+
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public static void main(String[] args) {
+        int snakes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 20240101L;
+
+        ArenaLoop arena = new ArenaLoop(size, size, snakes, seed, parallelism, DirectionPolicy::greedyFood);
+        long start = System.nanoTime();
+        long ticks = arena.run(5_000);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        arena.shutdown();
+
+        Contestant best = null;
+        for (Contestant c : arena.getContestants()) {
+            if (best == null || c.getScore() > best.getScore()) {
+                best = c;
+            }
+        }
+
+        System.out.println("========== 竞技场结果 ==========");
+        System.out.printf("蛇: %d 条，地图: %dx%d，tick: %d，存活: %d%n",
+                arena.getContestants().size(), size, size, ticks, arena.getAliveCount());
+        if (best != null) {
+            System.out.printf("最高分: %d 号蛇 %d 分（长度 %d）%n", best.getId(), best.getScore(), best.getLength());
+        }
+        System.out.printf("耗时: %d ms（%d 线程）%n", elapsedMs, parallelism);
+    }
+}
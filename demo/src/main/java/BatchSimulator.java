@@ -0,0 +1,115 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * 无头批量模拟：在 ForkJoin 线程池上并行跑完 N 局，用虚拟时钟按CPU速度推进，
+ * 方向由可替换的 DirectionPolicy 决定，最后汇总分数、长度和结束原因
+ */
+public class BatchSimulator {
+    private final int width;
+    private final int height;
+    private final long tickMillis;
+    private final long maxTicks;
+    private final ForkJoinPool pool;
+    private volatile boolean recordResults = false;
+
+    public BatchSimulator(int width, int height, long tickMillis, long maxTicks, int parallelism) {
+        this.width = width;
+        this.height = height;
+        this.tickMillis = tickMillis;
+        this.maxTicks = maxTicks;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * 每局结果是否提交到游戏记录（后台成批写入，不拖慢模拟线程）
+     */
+    public void setRecordResults(boolean recordResults) {
+        this.recordResults = recordResults;
+    }
+
+    /**
+     * 并行跑 games 局；policyFactory 每局调用一次，策略可以带状态。
+     * 第 i 局的种子由 rootSeed 和 i 决定，与线程调度无关，同样参数的结果逐位一致
+     */
+    public SimulationStats run(int games, long rootSeed, Supplier<DirectionPolicy> policyFactory) {
+        try {
+            return pool.submit(() -> IntStream.range(0, games)
+                    .parallel()
+                    .collect(SimulationStats::new,
+                            (stats, game) -> playOne(GameRandom.seedFor(rootSeed, game), policyFactory.get(), stats),
+                            SimulationStats::merge))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("模拟被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("模拟失败", e.getCause());
+        }
+    }
+
+    private void playOne(long seed, DirectionPolicy policy, SimulationStats stats) {
+        WorldManager worldManager = new WorldManager(width, height, seed);
+        worldManager.setVerbose(false);
+        worldManager.initializeGame();
+        World world = worldManager.getWorld();
+
+        ScoreManager scoreManager = new ScoreManager();
+        scoreManager.setVerbose(false);
+        RuleEngine ruleEngine = new RuleEngine();
+
+        GameLoop gameLoop = new GameLoop(world, ruleEngine, scoreManager,
+                worldManager.getFoodSpawner(), worldManager.getObstacleGenerator(), new VirtualClock());
+        gameLoop.setVerbose(false);
+        // 已经在工作线程上了，地图就地生成
+        gameLoop.setPregenerationExecutor(Runnable::run);
+        gameLoop.setSnapshotPublishing(false);   // 没有渲染
+        gameLoop.start();
+
+        RandomGenerator random = worldManager.newRandomStream();
+        long ticks = gameLoop.runVirtual(tickMillis, maxTicks, () -> {
+            Snake snake = world.getSnake();
+            Direction next = policy.choose(world, snake, random);
+            if (next != null) {
+                snake.changeDirection(next);
+            }
+            gameLoop.tick();
+            return !ruleEngine.isGameOver();
+        });
+
+        String reason = ruleEngine.isGameOver() ? ruleEngine.getGameOverReason() : "达到tick上限";
+        stats.record(scoreManager.getScore(), world.getSnake().getLength(), ticks, reason);
+        if (recordResults) {
+            GameRecordManager.submit(GameRecord.now(scoreManager.getScore(), world.getSnake().getLength(),
+                    ticks * tickMillis / 1000, GameRecord.SOURCE_SIMULATION, seed));
+        }
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 20240101L;
+        boolean record = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        BatchSimulator simulator = new BatchSimulator(30, 20, 500, 10_000, parallelism);
+        simulator.setRecordResults(record);
+        long start = System.nanoTime();
+        SimulationStats stats = simulator.run(games, seed, DirectionPolicy::greedyFood);
+        if (record) {
+            GameRecordManager.flush();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        simulator.shutdown();
+
+        System.out.println("========== 批量模拟结果 ==========");
+        System.out.println(stats);
+        System.out.printf("耗时: %d ms（%d 线程）%n", elapsedMs, parallelism);
+    }
+}
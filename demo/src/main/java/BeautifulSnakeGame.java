@@ -12,6 +12,7 @@ import java.awt.Graphics2D;
 import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
@@ -20,12 +21,10 @@ import java.awt.event.MouseEvent;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.AbstractAction;
 import javax.swing.BorderFactory;
@@ -39,11 +38,13 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JSlider;
 import javax.swing.JTextArea;
 import javax.swing.KeyStroke;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.border.LineBorder;
@@ -75,15 +76,23 @@ public class BeautifulSnakeGame extends JFrame {
     private JButton pauseButton;
     private JButton resetButton;
     private JButton helpButton;
+    private JButton replayButton;
     private JTextArea recordsArea;
     private JScrollPane recordsScroll;
+    private long olderRecordsCursor;    // 记录面板已显示到的最旧一条的下标，"更早记录"从这里往前翻
 
     // 游戏逻辑
     private WorldManager worldManager;
     private ScoreManager scoreManager;
     private RuleEngine ruleEngine;
     private GameLoop gameLoop;
-    private ScheduledExecutorService scheduler;
+    private ReplayRecorder recorder;
+
+    // 回放
+    private ReplayPlayer replayPlayer;
+    private Timer replayTimer;
+    private JSlider replaySlider;
+    private boolean updatingSlider;
 
     private long startTime;
 
@@ -277,21 +286,27 @@ public class BeautifulSnakeGame extends JFrame {
         recordsPanel.add(recordsScroll, BorderLayout.CENTER);
         
         // 控制按钮面板
-        JPanel recordsControlPanel = new JPanel(new GridLayout(1, 3, 5, 0));
+        JPanel recordsControlPanel = new JPanel(new GridLayout(3, 2, 5, 5));
         recordsControlPanel.setBackground(PANEL_BG);
         recordsControlPanel.setOpaque(false);
         
         JButton showRecordsButton = createSmallButton("刷新记录", new Color(255, 0, 0));
         JButton clearRecordsButton = createSmallButton("清空记录", new Color(0, 255, 0));
         JButton exportRecordsButton = createSmallButton("导出记录", new Color(0, 0, 255));
+        JButton importRecordsButton = createSmallButton("导入记录", new Color(255, 184, 0));
+        JButton olderRecordsButton = createSmallButton("更早记录", new Color(0, 255, 255));
         
         showRecordsButton.addActionListener(e -> loadAndDisplayRecords());
         clearRecordsButton.addActionListener(e -> clearRecords());
         exportRecordsButton.addActionListener(e -> exportRecords());
+        importRecordsButton.addActionListener(e -> importRecords());
+        olderRecordsButton.addActionListener(e -> showOlderRecords());
         
         recordsControlPanel.add(showRecordsButton);
         recordsControlPanel.add(clearRecordsButton);
         recordsControlPanel.add(exportRecordsButton);
+        recordsControlPanel.add(importRecordsButton);
+        recordsControlPanel.add(olderRecordsButton);
         
         recordsPanel.add(recordsControlPanel, BorderLayout.SOUTH);
         
@@ -381,7 +396,7 @@ public class BeautifulSnakeGame extends JFrame {
 
     private void createControlPanel() {
         controlPanel = new JPanel();
-        controlPanel.setLayout(new GridLayout(1, 4, 10, 0));
+        controlPanel.setLayout(new GridLayout(1, 5, 10, 0));
         controlPanel.setBackground(PANEL_BG);
         controlPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
@@ -390,13 +405,25 @@ public class BeautifulSnakeGame extends JFrame {
         pauseButton = createStyledButton("暂停游戏", new Color(255, 193, 7));
         resetButton = createStyledButton("重新开始", new Color(233, 30, 99));
         helpButton = createStyledButton("游戏帮助", new Color(33, 150, 243));
+        replayButton = createStyledButton("观看回放", new Color(156, 39, 176));
 
         controlPanel.add(startButton);
         controlPanel.add(pauseButton);
         controlPanel.add(resetButton);
         controlPanel.add(helpButton);
-
-        add(controlPanel, BorderLayout.SOUTH);
+        controlPanel.add(replayButton);
+
+        // 回放进度条，拖动时跳到对应tick
+        replaySlider = new JSlider(0, 0, 0);
+        replaySlider.setBackground(PANEL_BG);
+        replaySlider.setEnabled(false);
+        replaySlider.addChangeListener(e -> scrubReplay());
+
+        JPanel southPanel = new JPanel(new BorderLayout(0, 5));
+        southPanel.setBackground(PANEL_BG);
+        southPanel.add(replaySlider, BorderLayout.NORTH);
+        southPanel.add(controlPanel, BorderLayout.CENTER);
+        add(southPanel, BorderLayout.SOUTH);
     }
 
     private JButton createStyledButton(String text, Color color) {
@@ -466,7 +493,15 @@ public class BeautifulSnakeGame extends JFrame {
         World world = worldManager.getWorld();
         FoodSpawner foodSpawner = worldManager.getFoodSpawner();
 
-        gameLoop = new GameLoop(world, ruleEngine, scoreManager, foodSpawner);
+        gameLoop = new GameLoop(world, ruleEngine, scoreManager, foodSpawner,
+                worldManager.getObstacleGenerator(), GameClock.SYSTEM);
+
+        // 录制回放（种子 + 输入），结束时保存
+        recorder = new ReplayRecorder(worldManager.getSeed(), WORLD_WIDTH, WORLD_HEIGHT, 500);
+        gameLoop.setRecorder(recorder);
+
+        // 按变化日志只重绘变动的格子
+        gameLoop.addChangeListener(this::onWorldChanges);
 
         updateDisplay();
     }
@@ -476,6 +511,7 @@ public class BeautifulSnakeGame extends JFrame {
         pauseButton.addActionListener(e -> togglePause());
         resetButton.addActionListener(e -> resetGame());
         helpButton.addActionListener(e -> showHelp());
+        replayButton.addActionListener(e -> startReplay());
 
         // 时间更新定时器
         Timer timer = new Timer(1000, e -> updateTime());
@@ -525,14 +561,14 @@ public class BeautifulSnakeGame extends JFrame {
         Snake snake = worldManager.getWorld().getSnake();
         if (snake == null) return;
 
-        Direction currentDir = snake.getCurrentDirection();
-        if (!currentDir.isOpposite(dir)) {
-            snake.changeDirection(dir);
-            gamePanel.repaint();
-        }
+        // 只入队，由下一个tick校验并生效；两帧之间连按的方向不会互相覆盖
+        snake.getInputQueue().offer(dir);
     }
 
     private void startGame() {
+        if (replayPlayer != null) {
+            stopReplay();
+        }
         if (!gameLoop.isRunning()) {
             startTime = System.currentTimeMillis();
             gameLoop.start();
@@ -541,26 +577,30 @@ public class BeautifulSnakeGame extends JFrame {
             // 确保焦点
             gamePanel.requestFocus();
 
-            // 创建游戏循环 - 每秒执行4次（250毫秒一次）
-            scheduler = Executors.newScheduledThreadPool(1);
-            scheduler.scheduleAtFixedRate(() -> {
-                if (!gameLoop.isRunning() || gameLoop.isPaused()) {
-                    return;
+            // 由游戏循环的固定步长驱动，每500毫秒执行一次游戏逻辑。
+            // 逻辑在驱动线程上执行，EDT 只读取每个tick发布的快照，不等待模拟
+            GameLoop loop = gameLoop;
+            loop.startDriver(500, () -> {
+                if (!loop.isRunning()) {
+                    return false;
+                }
+                if (loop.isPaused()) {
+                    return true;
                 }
 
-                SwingUtilities.invokeLater(() -> {
-                    // 执行游戏逻辑
-                    boolean stillRunning = gameLoop.tick();
-                    
-                    // 更新显示
-                    updateDisplay();
+                // 执行游戏逻辑（棋盘按变化日志局部重绘）
+                boolean stillRunning = loop.tick();
 
-                    // 检查游戏是否结束
-                    if (!stillRunning || ruleEngine.isGameOver()) {
-                        gameOver();
-                    }
-                });
-            }, 0, 500, TimeUnit.MILLISECONDS); // 每250毫秒执行一次游戏逻辑
+                // 更新分数和长度
+                SwingUtilities.invokeLater(this::updateLabels);
+
+                // 检查游戏是否结束
+                if (!stillRunning || loop.getSnapshot().isGameOver()) {
+                    SwingUtilities.invokeLater(this::gameOver);
+                    return false;
+                }
+                return true;
+            });
 
             statusLabel.setText("游戏中");
             startButton.setEnabled(false);
@@ -585,9 +625,9 @@ public class BeautifulSnakeGame extends JFrame {
     }
 
     private void resetGame() {
-        if (scheduler != null) {
-            scheduler.shutdown();
-            scheduler = null;
+        gameLoop.stop();
+        if (replayPlayer != null) {
+            stopReplay();
         }
 
         initGame();
@@ -637,24 +677,24 @@ public class BeautifulSnakeGame extends JFrame {
     }
 
     private void gameOver() {
-        if (scheduler != null) {
-            scheduler.shutdown();
-            scheduler = null;
-        }
+        gameLoop.stopDriver();
 
         // 保存游戏记录
         long gameTime = (System.currentTimeMillis() - startTime) / 1000;
-        int score = scoreManager.getScore();
-        int length = worldManager.getWorld().getSnake().getLength();
+        WorldSnapshot snapshot = gameLoop.getSnapshot();
+        int score = snapshot.getScore();
+        int length = snapshot.getSnakeLength();
         
-        GameRecordManager.saveRecord(score, length, gameTime);
+        GameRecordManager.saveRecord(GameRecord.now(score, length, gameTime,
+                GameRecord.SOURCE_DESKTOP, worldManager.getSeed()));
+        String replayInfo = saveReplay(snapshot.getTick(), score, length);
 
         String message = "🎮 游戏结束！\n\n" +
-                "💥 原因：" + ruleEngine.getGameOverReason() + "\n" +
+                "💥 原因：" + snapshot.getGameOverReason() + "\n" +
                 "🏆 最终分数：" + score + "\n" +
                 "🐍 蛇长度：" + length + "\n" +
                 "⏱️ 游戏时间：" + String.format("%02d:%02d", gameTime / 60, gameTime % 60) + "\n\n" +
-                "记录已保存！点击\"刷新记录\"查看历史记录。";
+                "记录已加入保存队列，稍后会显示在记录区。" + replayInfo;
 
         showMessage("游戏结束", message);
         statusLabel.setText("游戏结束");
@@ -664,15 +704,159 @@ public class BeautifulSnakeGame extends JFrame {
         loadAndDisplayRecords();
     }
 
-    private void updateDisplay() {
-        World world = worldManager.getWorld();
+    /**
+     * 保存本局回放，返回附加在结束提示里的说明
+     */
+    private String saveReplay(long tick, int score, int length) {
+        recorder.finish(tick, score, length);
+        try {
+            File file = recorder.saveToDirectory("replays");
+            return "\n回放已保存：" + file.getPath();
+        } catch (IOException e) {
+            return "\n回放保存失败：" + e.getMessage();
+        }
+    }
+
+    private void startReplay() {
+        if (gameLoop.isRunning() && !ruleEngine.isGameOver()) {
+            showMessage("观看回放", "请先结束或重置当前游戏");
+            return;
+        }
 
-        scoreLabel.setText(String.valueOf(scoreManager.getScore()));
-        lengthLabel.setText(String.valueOf(world.getSnake() != null ? world.getSnake().getLength() : 0));
+        JFileChooser fileChooser = new JFileChooser(new File("replays"));
+        fileChooser.setDialogTitle("选择回放文件");
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
 
+        Replay replay;
+        try {
+            replay = Replay.load(fileChooser.getSelectedFile());
+        } catch (IOException e) {
+            showMessage("回放失败", "读取回放失败: " + e.getMessage());
+            return;
+        }
+        if (replay.getWidth() != WORLD_WIDTH || replay.getHeight() != WORLD_HEIGHT) {
+            showMessage("回放失败", "回放的地图尺寸与当前游戏不一致");
+            return;
+        }
+
+        String[] speeds = {"0.5x", "1x", "2x", "4x"};
+        int choice = JOptionPane.showOptionDialog(this, "选择回放速度", "观看回放",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, speeds, speeds[1]);
+        if (choice < 0) {
+            return;
+        }
+        double speed = new double[]{0.5, 1, 2, 4}[choice];
+
+        if (replayPlayer != null) {
+            stopReplay();
+        }
+        replayPlayer = new ReplayPlayer(replay);
+        int delay = (int) Math.max(1, replay.getTickPeriodMillis() / speed);
+        replayTimer = new Timer(delay, e -> {
+            boolean more = replayPlayer.step();
+            updateDisplay();
+            showReplayProgress();
+            if (!more) {
+                replayTimer.stop();
+                statusLabel.setText("回放结束");
+                showMessage("回放结束", "回放分数：" + replayPlayer.getScoreManager().getScore() +
+                        "\n记录分数：" + replay.getFinalScore());
+            }
+        });
+
+        updatingSlider = true;
+        replaySlider.setMaximum((int) replay.getFinalTick());
+        replaySlider.setValue(0);
+        replaySlider.setEnabled(true);
+        updatingSlider = false;
+
+        statusLabel.setText("回放中");
+        updateDisplay();
+        showReplayProgress();
+        replayTimer.start();
+    }
+
+    /**
+     * 拖动进度条：从最近的关键帧恢复后跳到目标tick
+     */
+    private void scrubReplay() {
+        if (updatingSlider || replayPlayer == null) {
+            return;
+        }
+        replayPlayer.seek(replaySlider.getValue());
+        updateDisplay();
+        showReplayProgress();
+        if (!replayPlayer.isFinished() && !replayTimer.isRunning()) {
+            statusLabel.setText("回放中");
+            replayTimer.start();
+        }
+    }
+
+    private void showReplayProgress() {
+        long tick = replayPlayer.getCurrentTick();
+        timeLabel.setText(String.format("%d/%d", tick, replayPlayer.getReplay().getFinalTick()));
+        updatingSlider = true;
+        replaySlider.setValue((int) tick);
+        updatingSlider = false;
+    }
+
+    private void stopReplay() {
+        replayTimer.stop();
+        replayTimer = null;
+        replayPlayer = null;
+        updatingSlider = true;
+        replaySlider.setValue(0);
+        replaySlider.setEnabled(false);
+        updatingSlider = false;
+        updateDisplay();
+    }
+
+    /**
+     * 当前要绘制的世界快照：回放中显示回放的世界
+     */
+    private WorldSnapshot displayedSnapshot() {
+        return replayPlayer != null ? replayPlayer.getGameLoop().getSnapshot() : gameLoop.getSnapshot();
+    }
+
+    private void updateDisplay() {
+        updateLabels();
         gamePanel.repaint();
     }
 
+    private void updateLabels() {
+        WorldSnapshot snapshot = displayedSnapshot();
+
+        scoreLabel.setText(String.valueOf(snapshot.getScore()));
+        lengthLabel.setText(String.valueOf(snapshot.getSnakeLength()));
+    }
+
+    /**
+     * 只重绘本tick变化的格子；障碍物换层或换蛇时整体重绘
+     */
+    private void onWorldChanges(WorldChanges changes) {
+        if (replayPlayer != null) {
+            return;
+        }
+        if (changes.isFullRefresh() || changes.isObstaclesChanged()) {
+            gamePanel.repaint();
+            return;
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            // 新蛇头连带周围一圈（旧蛇头要从头画成身体）
+            int margin = changes.getKind(i) == WorldChanges.HEAD_ADDED ? 1 : 0;
+            repaintCells(changes.getX(i), changes.getY(i), margin);
+        }
+    }
+
+    private void repaintCells(int cellX, int cellY, int margin) {
+        // 阴影和发光会画出格子外几个像素，多重绘一点
+        int pad = 4;
+        gamePanel.repaint((cellX - margin) * CELL_SIZE - pad, (cellY - margin) * CELL_SIZE - pad,
+                (2 * margin + 1) * CELL_SIZE + 2 * pad, (2 * margin + 1) * CELL_SIZE + 2 * pad);
+    }
+
     private void updateTime() {
         if (gameLoop.isRunning() && !gameLoop.isPaused()) {
             long elapsed = (System.currentTimeMillis() - startTime) / 1000;
@@ -680,41 +864,117 @@ public class BeautifulSnakeGame extends JFrame {
             long seconds = elapsed % 60;
             timeLabel.setText(String.format("%02d:%02d", minutes, seconds));
 
-            long foodTime = gameLoop.getTimeUntilNextFoodRefresh() / 1000;
-            long mapTime = gameLoop.getTimeUntilNextMapRefresh() / 1000;
+            WorldSnapshot snapshot = gameLoop.getSnapshot();
+            long foodTime = snapshot.getTimeUntilFoodRefresh() / 1000;
+            long mapTime = snapshot.getTimeUntilMapRefresh() / 1000;
 
             foodLabel.setText(foodTime + "秒");
             mapLabel.setText(mapTime + "秒");
         }
     }
 
+    /**
+     * 读取记录并显示。读取要等后台写入（包括 fsync）完成，放在 SwingWorker 线程上，界面线程不碰磁盘
+     */
     private void loadAndDisplayRecords() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("最高分记录：\n");
-        sb.append("====================\n");
-        sb.append(GameRecordManager.getHighScore());
-        sb.append("\n\n");
-        
-        sb.append("最近游戏记录：\n");
-        sb.append("====================\n");
-        
-        List<String> recentRecords = GameRecordManager.getRecentRecords(10);
-        if (recentRecords.isEmpty()) {
-            sb.append("暂无游戏记录\n");
-            sb.append("开始你的第一局游戏吧！\n");
-        } else {
-            for (int i = 0; i < recentRecords.size(); i++) {
-                sb.append(String.format("%2d. %s\n", i + 1, recentRecords.get(i)));
+        new SwingWorker<String, Void>() {
+            private long cursor;
+
+            @Override
+            protected String doInBackground() {
+                GameRecordManager.flush(); // 刚结束的这局也要显示出来
+                StringBuilder sb = new StringBuilder();
+                sb.append("最高分记录：\n");
+                sb.append("====================\n");
+                sb.append(GameRecordManager.getHighScore());
+                sb.append("\n\n");
+
+                LocalDate today = LocalDate.now();
+                sb.append("今日排行（共 ").append(GameRecordManager.getStats(today, today).getCount()).append(" 局）：\n");
+                sb.append("====================\n");
+                List<GameRecord> todayTop = GameRecordManager.getTopRecords(today);
+                if (todayTop.isEmpty()) {
+                    sb.append("今天还没有记录\n");
+                } else {
+                    for (int i = 0; i < Math.min(5, todayTop.size()); i++) {
+                        sb.append(String.format("%2d. %s\n", i + 1, todayTop.get(i)));
+                    }
+                }
+                sb.append("\n");
+
+                sb.append("最近游戏记录：\n");
+                sb.append("====================\n");
+
+                List<String> recentRecords = GameRecordManager.getRecentRecords(10);
+                cursor = Math.max(0, GameRecordManager.getRecordCount() - recentRecords.size());
+                if (recentRecords.isEmpty()) {
+                    sb.append("暂无游戏记录\n");
+                    sb.append("开始你的第一局游戏吧！\n");
+                } else {
+                    for (int i = 0; i < recentRecords.size(); i++) {
+                        sb.append(String.format("%2d. %s\n", i + 1, recentRecords.get(i)));
+                    }
+                }
+
+                sb.append("\n");
+                sb.append("文件信息：\n");
+                sb.append("====================\n");
+                sb.append(GameRecordManager.getFileInfo());
+                return sb.toString();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    recordsArea.setText(get());
+                    recordsArea.setCaretPosition(0); // 滚动到顶部
+                    olderRecordsCursor = cursor;
+                } catch (InterruptedException | ExecutionException e) {
+                    recordsArea.setText("读取游戏记录失败: " + e.getMessage());
+                }
             }
+        }.execute();
+    }
+
+    /**
+     * 从已显示的最旧记录再往前读一页，追加到记录区末尾（新的在前）；同样在后台线程上读
+     */
+    private void showOlderRecords() {
+        if (olderRecordsCursor <= 0) {
+            showMessage("更早记录", "已经是最早的记录了");
+            return;
         }
-        
-        sb.append("\n");
-        sb.append("文件信息：\n");
-        sb.append("====================\n");
-        sb.append(GameRecordManager.getFileInfo());
-        
-        recordsArea.setText(sb.toString());
-        recordsArea.setCaretPosition(0); // 滚动到顶部
+        long before = olderRecordsCursor;
+        new SwingWorker<String, Void>() {
+            private long position;
+
+            @Override
+            protected String doInBackground() throws IOException {
+                try (RecordTailReader reader = GameRecordManager.openTailReader(before)) {
+                    List<GameRecord> older = reader.readPrevious(10);
+                    StringBuilder sb = new StringBuilder();
+                    sb.append("\n\n更早记录：\n");
+                    sb.append("====================\n");
+                    for (int i = 0; i < older.size(); i++) {
+                        sb.append(String.format("第%d局 %s\n", before - i, older.get(i)));
+                    }
+                    position = reader.getPosition();
+                    return sb.toString();
+                }
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    recordsArea.append(get());
+                    recordsArea.setCaretPosition(recordsArea.getDocument().getLength());
+                    olderRecordsCursor = position;
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    showMessage("错误", "读取记录失败: " + cause.getMessage());
+                }
+            }
+        }.execute();
     }
 
     private void clearRecords() {
@@ -725,8 +985,7 @@ public class BeautifulSnakeGame extends JFrame {
                 JOptionPane.WARNING_MESSAGE);
         
         if (result == JOptionPane.YES_OPTION) {
-            File file = new File("snake_game_records.txt");
-            if (file.exists() && file.delete()) {
+            if (GameRecordManager.clearRecords()) {
                 showMessage("清空记录", "所有游戏记录已清空！");
                 loadAndDisplayRecords();
             } else {
@@ -747,7 +1006,7 @@ public class BeautifulSnakeGame extends JFrame {
                 List<String> records = GameRecordManager.loadRecords();
                 try (PrintWriter writer = new PrintWriter(fileToSave)) {
                     writer.println("========== 贪吃蛇游戏记录 ==========");
-                    writer.println("导出时间: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+                    writer.println("导出时间: " + GameRecord.DATE_FORMAT.format(LocalDateTime.now()));
                     writer.println("===================================\n");
                     
                     for (String record : records) {
@@ -763,6 +1022,26 @@ public class BeautifulSnakeGame extends JFrame {
         }
     }
 
+    /**
+     * 导入文本记录（导出文件或旧版记录文件），追加到二进制记录里
+     */
+    private void importRecords() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("导入游戏记录");
+
+        int userSelection = fileChooser.showOpenDialog(this);
+        if (userSelection == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            try {
+                int count = GameRecordManager.importText(file);
+                showMessage("导入成功", "已导入 " + count + " 条游戏记录");
+                loadAndDisplayRecords();
+            } catch (IOException e) {
+                showMessage("导入失败", "导入记录失败: " + e.getMessage());
+            }
+        }
+    }
+
     private void showMessage(String title, String message) {
         SwingUtilities.invokeLater(() -> {
             JOptionPane.showMessageDialog(this, message, title,
@@ -778,9 +1057,20 @@ public class BeautifulSnakeGame extends JFrame {
             Graphics2D g2 = (Graphics2D) g;
             g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-            World world = worldManager.getWorld();
+            // 只读快照，模拟线程同时推进也不会画出半个tick的状态
+            WorldSnapshot world = displayedSnapshot();
             if (world == null) return;
 
+            // 局部重绘时只画裁剪区附近的格子（外扩一格，照顾阴影和发光）
+            Rectangle clip = g2.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            }
+            int minCellX = Math.max(0, clip.x / CELL_SIZE - 1);
+            int minCellY = Math.max(0, clip.y / CELL_SIZE - 1);
+            int maxCellX = Math.min(WORLD_WIDTH - 1, (clip.x + clip.width) / CELL_SIZE + 1);
+            int maxCellY = Math.min(WORLD_HEIGHT - 1, (clip.y + clip.height) / CELL_SIZE + 1);
+
             // 绘制渐变背景
             GradientPaint gradient = new GradientPaint(
                     0, 0, new Color(15, 15, 25),
@@ -802,28 +1092,36 @@ public class BeautifulSnakeGame extends JFrame {
             Obstacles obstacles = world.getObstacles();
             if (obstacles != null) {
                 g2.setColor(new Color(80, 120, 255));
-                for (Point p : obstacles.getAllCells()) {
-                    int x = p.x * CELL_SIZE;
-                    int y = p.y * CELL_SIZE;
-
-                    // 阴影
-                    g2.setColor(new Color(60, 100, 235));
-                    g2.fillRect(x + 2, y + 2, CELL_SIZE, CELL_SIZE);
-
-                    // 主体
-                    g2.setColor(new Color(100, 140, 255));
-                    g2.fillRect(x, y, CELL_SIZE, CELL_SIZE);
-
-                    // 高光
-                    g2.setColor(new Color(140, 180, 255));
-                    g2.fillRect(x, y, CELL_SIZE, 3);
-                    g2.fillRect(x, y, 3, CELL_SIZE);
+                for (int cy = minCellY; cy <= maxCellY; cy++) {
+                    for (int cx = minCellX; cx <= maxCellX; cx++) {
+                        if (!obstacles.isBlocked(cx, cy)) {
+                            continue;
+                        }
+                        int x = cx * CELL_SIZE;
+                        int y = cy * CELL_SIZE;
+
+                        // 阴影
+                        g2.setColor(new Color(60, 100, 235));
+                        g2.fillRect(x + 2, y + 2, CELL_SIZE, CELL_SIZE);
+
+                        // 主体
+                        g2.setColor(new Color(100, 140, 255));
+                        g2.fillRect(x, y, CELL_SIZE, CELL_SIZE);
+
+                        // 高光
+                        g2.setColor(new Color(140, 180, 255));
+                        g2.fillRect(x, y, CELL_SIZE, 3);
+                        g2.fillRect(x, y, 3, CELL_SIZE);
+                    }
                 }
             }
 
             // 绘制食物（带发光效果）
             for (Food food : world.getFoods()) {
                 Point pos = food.getPosition();
+                if (pos.x < minCellX || pos.x > maxCellX || pos.y < minCellY || pos.y > maxCellY) {
+                    continue;
+                }
                 int x = pos.x * CELL_SIZE;
                 int y = pos.y * CELL_SIZE;
 
@@ -856,12 +1154,18 @@ public class BeautifulSnakeGame extends JFrame {
             }
 
             // 绘制蛇
-            Snake snake = world.getSnake();
-            if (snake != null) {
+            if (world.hasSnake()) {
                 boolean isHead = true;
-                for (Point p : snake.getBody()) {
-                    int x = p.x * CELL_SIZE;
-                    int y = p.y * CELL_SIZE;
+                for (int i = 0; i < world.getSnakeLength(); i++) {
+                    int cell = world.getSnakeCell(i);
+                    int cellX = Snake.unpackX(cell);
+                    int cellY = Snake.unpackY(cell);
+                    if (cellX < minCellX || cellX > maxCellX || cellY < minCellY || cellY > maxCellY) {
+                        isHead = false;
+                        continue;
+                    }
+                    int x = cellX * CELL_SIZE;
+                    int y = cellY * CELL_SIZE;
 
                     if (isHead) {
                         // 蛇头 - 带渐变效果
@@ -877,7 +1181,7 @@ public class BeautifulSnakeGame extends JFrame {
                         g2.setStroke(new BasicStroke(2));
                         g2.drawRoundRect(x + 2, y + 2, CELL_SIZE - 4, CELL_SIZE - 4, 10, 10);
 
-                        Direction dir = snake.getCurrentDirection();
+                        Direction dir = world.getDirection();
                         int eyeSize = CELL_SIZE / 5;
                         int pupilSize = eyeSize / 2;
 
@@ -963,15 +1267,11 @@ public class BeautifulSnakeGame extends JFrame {
             e.printStackTrace();
         }
         
-        // 确保记录文件存在
-        File recordFile = new File("snake_game_records.txt");
-        if (!recordFile.exists()) {
-            try {
-                recordFile.createNewFile();
-                System.out.println("创建游戏记录文件: " + recordFile.getAbsolutePath());
-            } catch (IOException e) {
-                System.err.println("创建记录文件失败: " + e.getMessage());
-            }
+        // 确保记录文件存在（首次运行时导入旧版文本记录）
+        try {
+            GameRecordManager.ensureFile();
+        } catch (IOException e) {
+            System.err.println("创建记录文件失败: " + e.getMessage());
         }
 
         // 启动游戏
@@ -0,0 +1,78 @@
+/**
+ * 按格子计数的占用表（蛇身用，头撞到身体时同一格会有两节）
+ * 越界的格子不计数，由调用方自行处理
+ */
+public class CellCounter {
+    /**
+     * 格子在空(0)与非空之间切换时的回调
+     */
+    public interface TransitionListener {
+        void onTransition(int index);
+    }
+
+    private final int width;
+    private final int height;
+    private final int[] counts;
+    private TransitionListener listener;
+
+    public CellCounter(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.counts = new int[width * height];
+    }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * 计数加一；越界返回false
+     */
+    public boolean increment(int x, int y) {
+        if (!inBounds(x, y)) {
+            return false;
+        }
+        int idx = y * width + x;
+        if (counts[idx]++ == 0 && listener != null) {
+            listener.onTransition(idx);
+        }
+        return true;
+    }
+
+    /**
+     * 计数减一；越界返回false
+     */
+    public boolean decrement(int x, int y) {
+        if (!inBounds(x, y)) {
+            return false;
+        }
+        int idx = y * width + x;
+        if (--counts[idx] == 0 && listener != null) {
+            listener.onTransition(idx);
+        }
+        return true;
+    }
+
+    public int get(int x, int y) {
+        return inBounds(x, y) ? counts[y * width + x] : 0;
+    }
+
+    /**
+     * 按格子编号（y * width + x）读取，不做越界检查
+     */
+    public int get(int index) {
+        return counts[index];
+    }
+
+    public void setTransitionListener(TransitionListener listener) {
+        this.listener = listener;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * 蛇头所在格子的分类结果
+ */
+public enum CellType {
+    OUT_OF_BOUNDS,
+    SNAKE_BODY,
+    OBSTACLE,
+    FOOD,
+    EMPTY
+}
@@ -0,0 +1,159 @@
+import java.util.Arrays;
+
+/**
+ * 可复用的连通性分析器：预分配的 int 队列 + 按轮次打标记的访问数组（不用每次清零），
+ * 一遍扫描给所有空格标出连通分量，同时得到起点可达的空格数
+ */
+public class ConnectivityChecker {
+
+    /**
+     * 一次分析的结果
+     */
+    public static class Result {
+        private final int reachable;
+        private final int totalEmpty;
+        private final int componentCount;
+
+        Result(int reachable, int totalEmpty, int componentCount) {
+            this.reachable = reachable;
+            this.totalEmpty = totalEmpty;
+            this.componentCount = componentCount;
+        }
+
+        /** 从起点出发能走到的空格数（不含起点本身） */
+        public int getReachable() {
+            return reachable;
+        }
+
+        public int getTotalEmpty() {
+            return totalEmpty;
+        }
+
+        public int getComponentCount() {
+            return componentCount;
+        }
+    }
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int width;
+    private final int height;
+    private final int[] queue;
+    private final int[] visited;     // 等于 epoch 表示本轮已访问
+    private final int[] component;   // 本轮的分量编号
+    private int[] componentSize = new int[16];
+    private final int[] seen = new int[5];     // 起点及四邻已计入的分量编号
+    private int epoch = 0;
+
+    public ConnectivityChecker(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int cells = width * height;
+        this.queue = new int[cells];
+        this.visited = new int[cells];
+        this.component = new int[cells];
+    }
+
+    /**
+     * 分析整张图的空格连通情况，起点一般是蛇头（它本身被占用）
+     */
+    public Result analyze(World world, int startX, int startY) {
+        nextEpoch();
+
+        int componentCount = 0;
+        int cells = width * height;
+        for (int start = 0; start < cells; start++) {
+            if (visited[start] == epoch || !world.isEmpty(start % width, start / width)) {
+                continue;
+            }
+            if (componentCount == componentSize.length) {
+                componentSize = Arrays.copyOf(componentSize, componentCount * 2);
+            }
+            componentSize[componentCount] = fill(world, start, componentCount);
+            componentCount++;
+        }
+
+        // 起点四周（以及起点本身若为空格）所属的不同分量之和
+        int reachable = 0;
+        int seenCount = 0;
+        for (int d = -1; d < 4; d++) {
+            int x = startX;
+            int y = startY;
+            if (d >= 0) {
+                Direction dir = DIRECTIONS[d];
+                x += dir.dx;
+                y += dir.dy;
+            }
+            int id = getComponentId(x, y);
+            if (id < 0) {
+                continue;
+            }
+            boolean counted = false;
+            for (int i = 0; i < seenCount; i++) {
+                if (seen[i] == id) {
+                    counted = true;
+                    break;
+                }
+            }
+            if (!counted) {
+                seen[seenCount++] = id;
+                reachable += componentSize[id];
+            }
+        }
+        if (getComponentId(startX, startY) >= 0) {
+            reachable--; // 不把起点自己算进去
+        }
+
+        return new Result(reachable, world.getFreeCellCount(), componentCount);
+    }
+
+    /**
+     * 最近一次分析中该格子的分量编号；不是空格返回-1
+     */
+    public int getComponentId(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return -1;
+        }
+        int idx = y * width + x;
+        return visited[idx] == epoch ? component[idx] : -1;
+    }
+
+    private int fill(World world, int start, int id) {
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visited[start] = epoch;
+        component[start] = id;
+
+        while (head < tail) {
+            int current = queue[head++];
+            int cx = current % width;
+            int cy = current / width;
+
+            // 检查四个方向
+            for (Direction dir : DIRECTIONS) {
+                int nx = cx + dir.dx;
+                int ny = cy + dir.dy;
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+                int next = ny * width + nx;
+                if (visited[next] != epoch && world.isEmpty(nx, ny)) {
+                    visited[next] = epoch;
+                    component[next] = id;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    private void nextEpoch() {
+        epoch++;
+        if (epoch == 0) {
+            // 轮次回绕时才真正清零一次
+            Arrays.fill(visited, 0);
+            epoch = 1;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * 无头模拟里替玩家决定每个tick的方向
+ */
+public interface DirectionPolicy {
+
+    /**
+     * @return 下一步的方向；返回null表示保持当前方向
+     */
+    Direction choose(World world, Snake snake, RandomGenerator random);
+
+    /**
+     * 随机选一个不会立刻撞上的方向，都不安全就保持原方向
+     */
+    static DirectionPolicy randomSafe() {
+        return (world, snake, random) -> {
+            Direction[] dirs = Direction.values();
+            int offset = random.nextInt(dirs.length);
+            for (int i = 0; i < dirs.length; i++) {
+                Direction d = dirs[(offset + i) % dirs.length];
+                if (!snake.getCurrentDirection().isOpposite(d) && isSafe(world, snake, d)) {
+                    return d;
+                }
+            }
+            return null;
+        };
+    }
+
+    /**
+     * 贪心：在安全方向里选离最近食物曼哈顿距离最小的
+     */
+    static DirectionPolicy greedyFood() {
+        return (world, snake, random) -> {
+            int hx = snake.getHeadX();
+            int hy = snake.getHeadY();
+            Direction best = null;
+            int bestDistance = Integer.MAX_VALUE;
+            for (Direction d : Direction.values()) {
+                if (snake.getCurrentDirection().isOpposite(d) || !isSafe(world, snake, d)) {
+                    continue;
+                }
+                int nx = hx + d.dx;
+                int ny = hy + d.dy;
+                int distance = Integer.MAX_VALUE - 1;
+                for (Food food : world.getFoods()) {
+                    int fd = Math.abs(food.getPosition().x - nx) + Math.abs(food.getPosition().y - ny);
+                    distance = Math.min(distance, fd);
+                }
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = d;
+                }
+            }
+            return best;
+        };
+    }
+
+    /**
+     * 朝该方向走一步是否安全（空地或食物）
+     */
+    static boolean isSafe(World world, Snake snake, Direction d) {
+        int nx = snake.getHeadX() + d.dx;
+        int ny = snake.getHeadY() + d.dy;
+        return world.isEmpty(nx, ny) || world.getFoodAt(nx, ny) != null;
+    }
+}
@@ -2,14 +2,27 @@ import java.awt.Point;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.random.RandomGenerator;
 
 public class FoodSpawner {
 
-    private final Random random = new Random();
+    // 在蛇头附近窗口里拒绝采样的次数
+    private static final int NEARBY_SAMPLES = 16;
+
+    private final RandomGenerator random;
     private final int minDistance;
 
     public FoodSpawner(int minDistance) {
+        this(minDistance, new Random());
+    }
+
+    public FoodSpawner(int minDistance, RandomGenerator random) {
         this.minDistance = minDistance;
+        this.random = random;
+    }
+
+    public RandomGenerator getRandom() {
+        return random;
     }
 
     public Food spawn(World world, Snake snake) {
@@ -21,6 +34,17 @@ public class FoodSpawner {
         return new Food(pos, type);
     }
     
+    /**
+     * 不考虑蛇头位置，从全图空格里等概率选一个位置（竞技场补充食物用）
+     */
+    public Food spawnAnywhere(World world) {
+        Point pos = world.randomFreeCell(random);
+        if (pos == null) {
+            return null;
+        }
+        return new Food(pos, chooseFoodType());
+    }
+    
     /**
      * 批量生成多个食物
      */
@@ -35,29 +59,49 @@ public class FoodSpawner {
         return foods;
     }
 
+    /**
+     * 优先在蛇头附近 minDistance 范围内选空格：先拒绝采样，
+     * 没中再扫描这个小窗口；窗口里没有空格就从全图空闲索引里等概率取一个
+     */
     private Point choosePosition(World world, Snake snake) {
-        Point head = snake.getHead();
+        int headX = snake.getHeadX();
+        int headY = snake.getHeadY();
 
-        int minX = head.x - minDistance;
-        int maxX = head.x + minDistance;
-        int minY = head.y - minDistance;
-        int maxY = head.y + minDistance;
+        int minX = Math.max(0, headX - minDistance);
+        int maxX = Math.min(world.getWidth() - 1, headX + minDistance);
+        int minY = Math.max(0, headY - minDistance);
+        int maxY = Math.min(world.getHeight() - 1, headY + minDistance);
 
-        List<Point> candidates = world.getEmptyPoints(
-            minX, minY, maxX, maxY
-        );
+        if (minX <= maxX && minY <= maxY) {
+            int spanX = maxX - minX + 1;
+            int spanY = maxY - minY + 1;
 
-        if (!candidates.isEmpty()) {
-            return candidates.get(random.nextInt(candidates.size()));
-        }
+            for (int attempt = 0; attempt < NEARBY_SAMPLES; attempt++) {
+                int x = minX + random.nextInt(spanX);
+                int y = minY + random.nextInt(spanY);
+                if (world.isEmpty(x, y)) {
+                    return new Point(x, y);
+                }
+            }
 
-        List<Point> all = world.getEmptyPoints(
-            0, 0,
-            world.getWidth() - 1,
-            world.getHeight() - 1
-        );
+            // 窗口比较满时退回到蓄水池抽样，保证窗口内等概率
+            int seen = 0;
+            int pickX = -1;
+            int pickY = -1;
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    if (world.isEmpty(x, y) && random.nextInt(++seen) == 0) {
+                        pickX = x;
+                        pickY = y;
+                    }
+                }
+            }
+            if (seen > 0) {
+                return new Point(pickX, pickY);
+            }
+        }
 
-        return all.isEmpty() ? null : all.get(random.nextInt(all.size()));
+        return world.randomFreeCell(random);
     }
 
     private FoodType chooseFoodType() {
@@ -0,0 +1,85 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * 空闲格子集合：紧凑数组存格子编号，另一个数组记每个格子在其中的位置
+ * 占用时与末尾交换删除，空出时追加到末尾，随机取一个空格是 O(1)
+ */
+public class FreeCellSet {
+    private final int[] cells;      // 前 size 个是空闲格子编号
+    private final int[] position;   // 格子编号 -> 在 cells 中的下标，-1 表示不空闲
+    private int size;
+
+    /**
+     * 创建时所有格子都空闲
+     */
+    public FreeCellSet(int capacity) {
+        this.cells = new int[capacity];
+        this.position = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            cells[i] = i;
+            position[i] = i;
+        }
+        this.size = capacity;
+    }
+
+    public boolean contains(int cell) {
+        return position[cell] >= 0;
+    }
+
+    public void add(int cell) {
+        if (position[cell] >= 0) {
+            return;
+        }
+        cells[size] = cell;
+        position[cell] = size;
+        size++;
+    }
+
+    public void remove(int cell) {
+        int pos = position[cell];
+        if (pos < 0) {
+            return;
+        }
+        int last = cells[--size];
+        cells[pos] = last;
+        position[last] = pos;
+        position[cell] = -1;
+    }
+
+    /**
+     * 按给定顺序重排空闲格子（集合内容必须与当前一致），
+     * 回放恢复关键帧后随机取格的结果才能与录制时相同
+     */
+    public void reorder(int[] order) {
+        if (order.length != size) {
+            throw new IllegalArgumentException("空闲格子数量不一致");
+        }
+        for (int i = 0; i < order.length; i++) {
+            int cell = order[i];
+            int pos = position[cell];
+            if (pos < 0) {
+                throw new IllegalArgumentException("格子不空闲: " + cell);
+            }
+            int displaced = cells[i];
+            cells[pos] = displaced;
+            position[displaced] = pos;
+            cells[i] = cell;
+            position[cell] = i;
+        }
+    }
+
+    public int get(int i) {
+        return cells[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 等概率随机取一个空闲格子编号；没有空格时返回-1
+     */
+    public int random(RandomGenerator random) {
+        return size == 0 ? -1 : cells[random.nextInt(size)];
+    }
+}
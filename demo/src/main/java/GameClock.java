@@ -0,0 +1,16 @@
+/**
+ * 游戏时钟：GameLoop 的刷新计时和 TickDriver 的节拍都从这里取时间
+ */
+public interface GameClock {
+
+    /**
+     * 系统单调时钟
+     */
+    GameClock SYSTEM = System::nanoTime;
+
+    long nanoTime();
+
+    default long millis() {
+        return nanoTime() / 1_000_000L;
+    }
+}
@@ -2,39 +2,214 @@ import java.awt.Point;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
 
 public class GameLoop {
+    // 所有游戏共用的后台布局生成线程（守护线程，不阻止退出）
+    private static final ExecutorService SHARED_PREGENERATOR = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), r -> {
+        Thread t = new Thread(r, "map-pregenerator");
+        t.setDaemon(true);
+        return t;
+    });
+    
     private final World world;
     private final RuleEngine ruleEngine;
     private final ScoreManager scoreManager;
     private final FoodSpawner foodSpawner;
     private final ObstacleGenerator obstacleGenerator;
+    private final GameClock clock;
+    private TickDriver driver;
+    private long tickPeriodMillis = 500;
     
     private volatile boolean running = false;
     private volatile boolean paused = false;
+    private RuleResult lastResult = new RuleResult();
+    private boolean verbose = true;
+    private long tickCount = 0;
+    
+    // 回放：录制器，以及由回放脚本指定刷新时刻的模式
+    private ReplayRecorder recorder;
+    private boolean scriptedRefresh = false;
+    
+    // 按tick编号排期的定时事件；刷新食物/地图是其中的周期事件，到期后在本tick按固定顺序执行
+    private final TimingWheel timers = new TimingWheel(-1);
+    private TimingWheel.Timer foodRefreshEvent;
+    private TimingWheel.Timer pregenerateEvent;
+    private TimingWheel.Timer mapSwapEvent;
+    private boolean pendingFoodRefresh;
+    private boolean pendingPregenerate;
+    private boolean pendingMapSwap;
+    
+    // 变化日志双缓冲：一个记录当前tick，另一个是上个tick发布给订阅者的
+    private WorldChanges changes = new WorldChanges();
+    private WorldChanges publishedChanges = new WorldChanges();
+    private final List<WorldChanges.Listener> changeListeners = new CopyOnWriteArrayList<>();
     
-    private long lastFoodRefreshTime = 0;
-    private long lastMapRefreshTime = 0;
+    // 每个tick结束时在tick线程上生成的不可变快照，一次 volatile 写整体替换；读者只做 volatile 读，
+    // 不加锁，渲染再慢也拖不住tick。无头运行（批量模拟、会话、回放跳转）关掉发布，不付复制的开销
+    private volatile WorldSnapshot snapshot;
+    private boolean publishSnapshots = true;
+    
+    private long lastFoodRefreshTick = 0;
+    private long lastMapRefreshTick = 0;
     private final long FOOD_REFRESH_INTERVAL = 10000; // 10秒
     private final long MAP_REFRESH_INTERVAL = 20000; // 20秒
+    private final long PREGENERATE_LEAD = 3000; // 提前3秒开始生成下一张地图
+    private final int MAX_CATCH_UP_TICKS = 5; // 落后时最多连补5个tick
+    
+    private Executor pregenerationExecutor = SHARED_PREGENERATOR;
+    private CompletableFuture<Obstacles> pendingLayout;
+    private long snapshotMoveCount;
+    private int snapshotFoodVersion;
     
     public GameLoop(World world, RuleEngine ruleEngine, ScoreManager scoreManager, 
                     FoodSpawner foodSpawner) {
+        this(world, ruleEngine, scoreManager, foodSpawner, GameClock.SYSTEM);
+    }
+    
+    public GameLoop(World world, RuleEngine ruleEngine, ScoreManager scoreManager, 
+                    FoodSpawner foodSpawner, GameClock clock) {
+        this(world, ruleEngine, scoreManager, foodSpawner, new ObstacleGenerator(world), clock);
+    }
+    
+    /**
+     * 传入 WorldManager 的障碍物生成器，整局的随机性都来自同一个种子
+     */
+    public GameLoop(World world, RuleEngine ruleEngine, ScoreManager scoreManager, 
+                    FoodSpawner foodSpawner, ObstacleGenerator obstacleGenerator, GameClock clock) {
         this.world = world;
         this.ruleEngine = ruleEngine;
         this.scoreManager = scoreManager;
         this.foodSpawner = foodSpawner;
-        this.obstacleGenerator = new ObstacleGenerator(world);
+        this.obstacleGenerator = obstacleGenerator;
+        this.clock = clock;
+        world.setChangeJournal(changes);
+        publishSnapshot();
     }
     
     public void start() {
         running = true;
-        lastFoodRefreshTime = System.currentTimeMillis();
-        lastMapRefreshTime = System.currentTimeMillis();
+        pendingLayout = null;
+        tickCount = 0;
+        lastFoodRefreshTick = 0;
+        lastMapRefreshTick = 0;
+        timers.rebase(tickCount - 1);
+        armRefreshEvents();
+        publishSnapshot();
+    }
+    
+    /**
+     * 按当前tick周期把刷新间隔换算成tick数，重新排期三个周期事件（回放模式下不排）
+     */
+    private void armRefreshEvents() {
+        timers.cancel(foodRefreshEvent);
+        timers.cancel(pregenerateEvent);
+        timers.cancel(mapSwapEvent);
+        foodRefreshEvent = null;
+        pregenerateEvent = null;
+        mapSwapEvent = null;
+        if (scriptedRefresh) {
+            return;
+        }
+        
+        long foodTicks = intervalTicks(FOOD_REFRESH_INTERVAL);
+        long mapTicks = intervalTicks(MAP_REFRESH_INTERVAL);
+        long leadTicks = Math.min(mapTicks - 1, (PREGENERATE_LEAD + tickPeriodMillis - 1) / tickPeriodMillis);
+        long now = timers.getCurrentTick();
+        
+        foodRefreshEvent = timers.scheduleRepeating(lastFoodRefreshTick + foodTicks - now, foodTicks,
+                () -> pendingFoodRefresh = true);
+        long pregenerateDue = lastMapRefreshTick + mapTicks - leadTicks;
+        if (pendingLayout != null) {
+            pregenerateDue += mapTicks; // 这一轮已经在生成了
+        }
+        pregenerateEvent = timers.scheduleRepeating(pregenerateDue - now, mapTicks,
+                () -> pendingPregenerate = true);
+        mapSwapEvent = timers.scheduleRepeating(lastMapRefreshTick + mapTicks - now, mapTicks,
+                () -> pendingMapSwap = true);
+    }
+    
+    private long intervalTicks(long intervalMillis) {
+        return Math.max(1, Math.round(intervalMillis / (double) tickPeriodMillis));
+    }
+    
+    private void setPeriod(long periodMillis) {
+        tickPeriodMillis = periodMillis;
+        if (running) {
+            armRefreshEvents();
+        }
     }
     
     public void stop() {
         running = false;
+        stopDriver();
+    }
+    
+    /**
+     * 用固定步长驱动本循环（真实时间，独立线程）
+     * @param step 每个tick执行的动作，返回false停止驱动；为null时执行 tick() 直到游戏结束
+     */
+    public synchronized void startDriver(long periodMillis, BooleanSupplier step) {
+        stopDriver();
+        setPeriod(periodMillis);
+        driver = new TickDriver(clock, periodMillis * 1_000_000L, MAX_CATCH_UP_TICKS,
+                step != null ? step : this::defaultStep);
+        driver.start("game-tick");
+    }
+    
+    /**
+     * 虚拟时间下连续执行最多 maxTicks 个tick，每个tick时钟前进 periodMillis；
+     * 刷新节奏与真实时间完全一致，只是不等待
+     * @return 实际执行的tick数
+     */
+    public long runVirtual(long periodMillis, long maxTicks, BooleanSupplier step) {
+        if (!(clock instanceof VirtualClock)) {
+            throw new IllegalStateException("虚拟时间模式需要 VirtualClock");
+        }
+        setPeriod(periodMillis);
+        TickDriver virtualDriver = new TickDriver(clock, periodMillis * 1_000_000L, MAX_CATCH_UP_TICKS,
+                step != null ? step : this::defaultStep);
+        synchronized (this) {
+            driver = virtualDriver;
+        }
+        return virtualDriver.runVirtual((VirtualClock) clock, maxTicks);
+    }
+    
+    /**
+     * 默认的驱动动作：暂停时空转，游戏结束或停止后退出
+     */
+    boolean defaultStep() {
+        if (!running) {
+            return false;
+        }
+        tick();
+        return running && !ruleEngine.isGameOver();
+    }
+    
+    /**
+     * 停止驱动（不等待线程结束，可以在tick回调里调用）
+     */
+    public synchronized void stopDriver() {
+        if (driver != null) {
+            driver.stop();
+        }
+    }
+    
+    /**
+     * 等待驱动线程退出
+     */
+    public boolean awaitDriver(long timeoutMillis) throws InterruptedException {
+        TickDriver current;
+        synchronized (this) {
+            current = driver;
+        }
+        return current == null || current.awaitTermination(timeoutMillis);
     }
     
     public void pause() {
@@ -53,159 +228,355 @@ public class GameLoop {
             return false;
         }
         
-        // 1. 检查是否需要刷新食物（每10秒）
-        checkFoodRefresh();
+        // 1. 触发本tick到期的定时事件（回放模式下刷新事件由回放脚本给出）
+        timers.advanceTo(tickCount);
         
-        // 2. 检查是否需要刷新地图（每20秒）
-        checkMapRefresh();
+        // 2. 按固定顺序执行到期的刷新：食物（每10秒）、生成候选地图、替换地图（每20秒）
+        runPendingRefresh();
         
-        // 3. 蛇移动（方向已在外部设置）
+        // 3. 取出一个有效的玩家转向，蛇移动
         Snake snake = world.getSnake();
+        Direction turn = snake.getInputQueue().poll(snake.getCurrentDirection());
+        if (turn != null) {
+            snake.changeDirection(turn);
+        }
+        if (recorder != null) {
+            recorder.onTick(tickCount, snake.getCurrentDirection());
+        }
+        if (snake.getGrowthPending() == 0) {
+            int tail = snake.getCell(snake.getLength() - 1);
+            changes.add(WorldChanges.TAIL_REMOVED, Snake.unpackX(tail), Snake.unpackY(tail), 0);
+        }
         snake.move();
+        changes.add(WorldChanges.HEAD_ADDED, snake.getHeadX(), snake.getHeadY(), 0);
         
-        // 4. 检查碰撞和规则
-        ruleEngine.checkCollision(this);
-        ruleEngine.checkFood(this);
+        // 4. 检查碰撞和规则（对蛇头格子一次分类）
+        lastResult = ruleEngine.evaluate(this);
+        tickCount++;
+        publishSnapshot();
+        publishChanges();
+        if (recorder != null && !lastResult.gameOver) {
+            recorder.afterTick(this);
+        }
         
         return running; // 返回游戏是否还在运行
     }
     
     /**
-     * 检查并刷新食物（每10秒）
+     * 在模拟线程上生成快照，一次 volatile 写整体替换
      */
-    private void checkFoodRefresh() {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastFoodRefreshTime >= FOOD_REFRESH_INTERVAL) {
-            // 清空未吃掉的食物
-            world.clearFoods();
-            
-            // 生成5个新食物
-            List<Food> newFoods = foodSpawner.spawnMultiple(world, world.getSnake(), 5);
-            for (Food food : newFoods) {
-                world.addFood(food);
-            }
-            
-            lastFoodRefreshTime = currentTime;
-            
+    private void publishSnapshot() {
+        if (publishSnapshots) {
+            snapshot = new WorldSnapshot(world, snapshot, tickCount, scoreManager.getScore(),
+                    ruleEngine.isGameOver(), ruleEngine.getGameOverReason(),
+                    getTimeUntilNextFoodRefresh(), getTimeUntilNextMapRefresh());
+        }
+    }
+    
+    /**
+     * 最近一个tick结束时的世界快照，任何线程都可以读（一次 volatile 读）；
+     * 关掉发布期间返回关掉之前的最后一个快照
+     */
+    public WorldSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * 是否每个tick发布快照（默认开启）。没有渲染的无头运行可以关掉，省下每个tick复制蛇身和食物；
+     * 重新开启时立刻按当前世界发布一个。只能在tick线程上（或驱动启动之前）调用
+     */
+    public void setSnapshotPublishing(boolean enabled) {
+        publishSnapshots = enabled;
+        publishSnapshot();
+    }
+    
+    /**
+     * 发布本tick的变化日志，换另一块缓冲记录下一个tick
+     */
+    private void publishChanges() {
+        WorldChanges done = changes;
+        done.setScoreDelta(lastResult.scoreDelta);
+        lastResult.changes = done;
+        
+        changes = publishedChanges;
+        changes.clear(tickCount);
+        world.setChangeJournal(changes);
+        publishedChanges = done;
+        
+        for (WorldChanges.Listener listener : changeListeners) {
+            listener.onChanges(done);
+        }
+    }
+    
+    /**
+     * 订阅每个tick的变化日志（在tick线程上回调）
+     */
+    public void addChangeListener(WorldChanges.Listener listener) {
+        changeListeners.add(listener);
+    }
+    
+    public void removeChangeListener(WorldChanges.Listener listener) {
+        changeListeners.remove(listener);
+    }
+    
+    private void runPendingRefresh() {
+        if (pendingFoodRefresh) {
+            refreshFoods();
+        }
+        if (pendingPregenerate && pendingLayout == null) {
+            startPregeneration();
+        }
+        if (pendingMapSwap) {
+            swapMap();
+        }
+        pendingFoodRefresh = false;
+        pendingPregenerate = false;
+        pendingMapSwap = false;
+    }
+    
+    private void refreshFoods() {
+        if (recorder != null) {
+            recorder.onEvent(tickCount, Replay.EVENT_FOOD_REFRESH);
+        }
+        
+        // 清空未吃掉的食物
+        world.clearFoods();
+        
+        // 生成5个新食物
+        List<Food> newFoods = foodSpawner.spawnMultiple(world, world.getSnake(), 5);
+        for (Food food : newFoods) {
+            world.addFood(food);
+        }
+        
+        lastFoodRefreshTick = tickCount;
+        
+        if (verbose) {
             System.out.println("食物已刷新！生成了" + newFoods.size() + "个新食物");
         }
     }
     
     /**
-     * 检查并刷新地图（每20秒）
+     * 刷新地图（每20秒）
+     * 刷新前 PREGENERATE_LEAD 毫秒在后台线程按快照生成候选布局，
+     * 到点时只校验快照之后变化过的格子，然后一次性替换
      */
-    private void checkMapRefresh() {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastMapRefreshTime >= MAP_REFRESH_INTERVAL) {
-            // 获取需要避开的位置：蛇身、蛇头、所有食物
-            Set<Point> positionsToAvoid = new HashSet<>();
-            
-            // 避开蛇的所有身体部分
-            Snake snake = world.getSnake();
-            if (snake != null) {
-                for (Point bodyPart : snake.getBody()) {
-                    positionsToAvoid.add(new Point(bodyPart));
-                }
-            }
-            
-            // 避开所有食物
-            List<Food> foods = world.getFoods();
-            if (foods != null) {
-                for (Food food : foods) {
-                    positionsToAvoid.add(new Point(food.getPosition()));
-                }
-            }
-            
-            // 避开蛇头周围3x3区域
-            Point head = snake.getHead();
+    private void swapMap() {
+        if (pendingLayout == null) {
+            startPregeneration();
+        }
+        if (recorder != null) {
+            recorder.onEvent(tickCount, Replay.EVENT_MAP_SWAP);
+        }
+        
+        Obstacles newObstacles = validateCandidate(pendingLayout.join());
+        pendingLayout = null;
+        
+        world.setObstacles(newObstacles);
+        if (verbose) {
+            System.out.println("地图已刷新！生成了新的障碍物布局");
+        }
+        
+        lastMapRefreshTick = tickCount;
+    }
+    
+    /**
+     * 在当前线程拍下蛇身、食物和蛇头位置，交给后台线程生成候选布局
+     */
+    private void startPregeneration() {
+        if (recorder != null) {
+            recorder.onEvent(tickCount, Replay.EVENT_MAP_PREGENERATE);
+        }
+        Snake snake = world.getSnake();
+        int[] snakeCells = snake.copyCells();
+        List<Food> foods = world.getFoods();
+        int[] foodCells = new int[foods.size()];
+        for (int i = 0; i < foodCells.length; i++) {
+            Point p = foods.get(i).getPosition();
+            foodCells[i] = Snake.pack(p.x, p.y);
+        }
+        int headX = snake.getHeadX();
+        int headY = snake.getHeadY();
+        
+        snapshotMoveCount = snake.getMoveCount();
+        snapshotFoodVersion = world.getFoodVersion();
+        
+        int width = world.getWidth();
+        int height = world.getHeight();
+        // 重新生成障碍物（不超过总格子的15%）
+        int maxObstacleCells = (int)(width * height * 0.15);
+        
+        pendingLayout = CompletableFuture.supplyAsync(() -> {
+            // 需要避开的位置：蛇身、所有食物、蛇头周围3x3区域
+            boolean[] reserved = new boolean[width * height];
+            reserveCells(reserved, snakeCells, width, height);
+            reserveCells(reserved, foodCells, width, height);
             for (int dx = -1; dx <= 1; dx++) {
                 for (int dy = -1; dy <= 1; dy++) {
-                    Point adjacent = new Point(head.x + dx, head.y + dy);
-                    if (world.inBounds(adjacent)) {
-                        positionsToAvoid.add(adjacent);
+                    int x = headX + dx;
+                    int y = headY + dy;
+                    if (x >= 0 && x < width && y >= 0 && y < height) {
+                        reserved[y * width + x] = true;
                     }
                 }
             }
-            
-            // 重新生成障碍物（不超过总格子的15%）
-            int totalCells = world.getWidth() * world.getHeight();
-            int maxObstacleCells = (int)(totalCells * 0.15);
-            
-            Obstacles newObstacles = obstacleGenerator.generate(maxObstacleCells, positionsToAvoid);
-            
-            // 检查连通性，如果不连通则重新生成（最多尝试5次）
-            int attempts = 0;
-            while (attempts < 5) {
-                // 临时设置新障碍物检查连通性
-                Obstacles oldObstacles = world.getObstacles();
-                world.setObstacles(newObstacles);
-                
-                if (checkMapConnectivity()) {
-                    // 连通性检查通过，保留新障碍物
-                    System.out.println("地图已刷新！生成了新的障碍物布局");
-                    break;
-                } else {
-                    // 不连通，重新生成
-                    newObstacles = obstacleGenerator.generate(maxObstacleCells, positionsToAvoid);
-                    world.setObstacles(oldObstacles); // 恢复旧障碍物
-                    attempts++;
-                }
-            }
-            
-            if (attempts >= 5) {
-                System.out.println("地图刷新失败：无法生成连通的地图，保持原有障碍物");
+            // 单遍生成，可走区域按构造保证连通，不再需要检查和重试
+            return obstacleGenerator.generateConnected(maxObstacleCells, reserved);
+        }, pregenerationExecutor);
+    }
+    
+    private static void reserveCells(boolean[] reserved, int[] cells, int width, int height) {
+        for (int cell : cells) {
+            int x = Snake.unpackX(cell);
+            int y = Snake.unpackY(cell);
+            if (x >= 0 && x < width && y >= 0 && y < height) {
+                reserved[y * width + x] = true;
             }
-            
-            lastMapRefreshTime = currentTime;
         }
     }
     
     /**
-     * 检查地图连通性
+     * 只检查快照之后新占用的格子：蛇新走过的格子、（若有变动）当前食物、当前蛇头3x3。
+     * 与候选布局冲突的墙格直接挖掉——去掉墙只会让可走区域更连通
      */
-    private boolean checkMapConnectivity() {
+    private Obstacles validateCandidate(Obstacles candidate) {
+        Set<Point> conflicts = new HashSet<>();
         Snake snake = world.getSnake();
-        if (snake == null) return false;
-        
-        Point head = snake.getHead();
-        boolean[][] visited = new boolean[world.getWidth()][world.getHeight()];
-        java.util.List<Point> queue = new java.util.ArrayList<>();
-        queue.add(head);
-        visited[head.x][head.y] = true;
-        
-        int reachableCells = 0;
-        
-        while (!queue.isEmpty()) {
-            Point current = queue.remove(0);
-            reachableCells++;
-            
-            // 检查四个方向
-            for (Direction dir : Direction.values()) {
-                Point neighbor = new Point(current.x + dir.dx, current.y + dir.dy);
-                
-                if (world.inBounds(neighbor) && 
-                    !visited[neighbor.x][neighbor.y] && 
-                    !world.isOccupied(neighbor)) {
-                    
-                    visited[neighbor.x][neighbor.y] = true;
-                    queue.add(neighbor);
-                }
+        
+        long moved = snake.getMoveCount() - snapshotMoveCount;
+        int fresh = (int) Math.min(moved, snake.getLength());
+        for (int i = 0; i < fresh; i++) {
+            int cell = snake.getCell(i);
+            addConflict(candidate, conflicts, Snake.unpackX(cell), Snake.unpackY(cell));
+        }
+        
+        if (world.getFoodVersion() != snapshotFoodVersion) {
+            for (Food food : world.getFoods()) {
+                Point p = food.getPosition();
+                addConflict(candidate, conflicts, p.x, p.y);
             }
         }
         
-        // 计算空单元格总数
-        int totalEmpty = 0;
-        for (int x = 0; x < world.getWidth(); x++) {
-            for (int y = 0; y < world.getHeight(); y++) {
-                Point p = new Point(x, y);
-                if (!world.isOccupied(p)) {
-                    totalEmpty++;
-                }
+        int headX = snake.getHeadX();
+        int headY = snake.getHeadY();
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                addConflict(candidate, conflicts, headX + dx, headY + dy);
             }
         }
         
-        // 如果能到达大部分空单元格，认为地图连通
-        return reachableCells >= Math.min(10, totalEmpty);
+        return candidate.withoutCells(conflicts);
+    }
+    
+    private static void addConflict(Obstacles candidate, Set<Point> conflicts, int x, int y) {
+        if (candidate.isBlocked(x, y)) {
+            conflicts.add(new Point(x, y));
+        }
+    }
+    
+    /**
+     * 录制本局回放；传null停止录制
+     */
+    public void setRecorder(ReplayRecorder recorder) {
+        this.recorder = recorder;
+    }
+    
+    public ReplayRecorder getRecorder() {
+        return recorder;
+    }
+    
+    /**
+     * 回放模式：不再按时钟刷新食物和地图，只在 scheduleScriptedEvent 指定的tick刷新
+     */
+    public void setScriptedRefresh(boolean scriptedRefresh) {
+        this.scriptedRefresh = scriptedRefresh;
+        if (running) {
+            armRefreshEvents();
+        }
+    }
+    
+    /**
+     * 让下一个tick执行指定的刷新事件（Replay.EVENT_*）
+     */
+    public void scheduleScriptedEvent(int code) {
+        switch (code) {
+            case Replay.EVENT_FOOD_REFRESH:
+                pendingFoodRefresh = true;
+                break;
+            case Replay.EVENT_MAP_PREGENERATE:
+                pendingPregenerate = true;
+                break;
+            case Replay.EVENT_MAP_SWAP:
+                pendingMapSwap = true;
+                break;
+            default:
+                throw new IllegalArgumentException("未知的刷新事件: " + code);
+        }
+    }
+    
+    /**
+     * 已执行的tick数（暂停时不计）
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+    
+    /**
+     * 是否有候选布局正在生成（此时状态不适合做关键帧）
+     */
+    public boolean isPregenerationPending() {
+        return pendingLayout != null;
+    }
+    
+    public long getFoodRefreshElapsed() {
+        return (tickCount - lastFoodRefreshTick) * tickPeriodMillis;
+    }
+    
+    public long getMapRefreshElapsed() {
+        return (tickCount - lastMapRefreshTick) * tickPeriodMillis;
+    }
+    
+    /**
+     * 从回放关键帧恢复tick数和刷新计时（倒推上次刷新的tick，重新排期刷新事件）；
+     * 通过 schedule 注册的事件保留，剩余的tick数不变
+     */
+    void restoreProgress(long tickCount, long foodElapsed, long mapElapsed) {
+        this.tickCount = tickCount;
+        this.lastFoodRefreshTick = tickCount - foodElapsed / tickPeriodMillis;
+        this.lastMapRefreshTick = tickCount - mapElapsed / tickPeriodMillis;
+        this.pendingLayout = null;
+        this.lastResult = new RuleResult();
+        timers.rebase(tickCount - 1);
+        armRefreshEvents();
+        publishSnapshot();
+    }
+    
+    /**
+     * delayTicks 个tick之后执行一次 action（在那个tick开头、蛇移动之前，在tick线程上执行），O(1)。
+     * 整个循环只有一个时间轮，start() 之前注册的事件也有效，从开局算起
+     */
+    public TimingWheel.Timer schedule(long delayTicks, Runnable action) {
+        return timers.schedule(delayTicks, action);
+    }
+    
+    /**
+     * 周期事件：delayTicks 个tick之后第一次执行，之后每 periodTicks 个tick执行一次
+     */
+    public TimingWheel.Timer scheduleRepeating(long delayTicks, long periodTicks, Runnable action) {
+        return timers.scheduleRepeating(delayTicks, periodTicks, action);
+    }
+    
+    /**
+     * 取消定时事件，O(1)
+     */
+    public boolean cancel(TimingWheel.Timer timer) {
+        return timers.cancel(timer);
+    }
+    
+    /**
+     * 设置生成候选布局用的线程池；传 Runnable::run 则在tick线程上同步生成
+     */
+    public void setPregenerationExecutor(Executor pregenerationExecutor) {
+        this.pregenerationExecutor = pregenerationExecutor;
     }
     
     public World getWorld() {
@@ -216,6 +587,43 @@ public class GameLoop {
         return scoreManager;
     }
     
+    public FoodSpawner getFoodSpawner() {
+        return foodSpawner;
+    }
+    
+    public ObstacleGenerator getObstacleGenerator() {
+        return obstacleGenerator;
+    }
+    
+    /**
+     * 最近一次tick的规则判定结果
+     */
+    public RuleResult getLastResult() {
+        return lastResult;
+    }
+    
+    /**
+     * 关闭控制台输出（批量模拟用）
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+    
+    public GameClock getClock() {
+        return clock;
+    }
+    
+    public long getTickPeriodMillis() {
+        return tickPeriodMillis;
+    }
+    
+    /**
+     * 由外部调度器驱动时记下tick周期
+     */
+    void setTickPeriodMillis(long tickPeriodMillis) {
+        setPeriod(tickPeriodMillis);
+    }
+    
     public boolean isRunning() {
         return running;
     }
@@ -225,14 +633,20 @@ public class GameLoop {
     }
     
     public long getTimeUntilNextFoodRefresh() {
-        long currentTime = System.currentTimeMillis();
-        long elapsed = currentTime - lastFoodRefreshTime;
-        return Math.max(0, FOOD_REFRESH_INTERVAL - elapsed);
+        return timeUntil(foodRefreshEvent);
     }
     
     public long getTimeUntilNextMapRefresh() {
-        long currentTime = System.currentTimeMillis();
-        long elapsed = currentTime - lastMapRefreshTime;
-        return Math.max(0, MAP_REFRESH_INTERVAL - elapsed);
+        return timeUntil(mapSwapEvent);
+    }
+    
+    /**
+     * 按剩余tick数和tick周期换算的毫秒数
+     */
+    private long timeUntil(TimingWheel.Timer event) {
+        if (event == null) {
+            return 0;
+        }
+        return Math.max(0, event.getDeadline() - tickCount) * tickPeriodMillis;
     }
 }
\ No newline at end of file
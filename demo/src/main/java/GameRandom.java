@@ -0,0 +1,71 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * 可拆分的 SplitMix64 随机数发生器，算法同 java.util.SplittableRandom。
+ * 每局游戏从一个种子出发，split() 给各组件派生互不相关的独立流：
+ * 和 SplittableRandom.split() 一样，子流的种子和步长（gamma）都从父流取出再混合，
+ * 每个子流的步长都不同。不加锁；步长由派生路径决定，需要保存和恢复的只有一个 long。
+ * 不直接包装 SplittableRandom 是因为它不能导出状态，关键帧要保存随机流的位置
+ */
+public class GameRandom implements RandomGenerator {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+    private final long gamma;   // 步长，奇数
+
+    public GameRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private GameRandom(long seed, long gamma) {
+        this.state = seed;
+        this.gamma = gamma;
+    }
+
+    @Override
+    public long nextLong() {
+        state += gamma;
+        return mix64(state);
+    }
+
+    /**
+     * 派生一个新的独立流（会推进当前流两步）
+     */
+    public GameRandom split() {
+        long seed = nextLong();
+        state += gamma;
+        return new GameRandom(seed, mixGamma(state));
+    }
+
+    /**
+     * 由根种子和编号算出第 index 个子种子，与调用顺序无关（并行时也可复现）
+     */
+    public static long seedFor(long rootSeed, long index) {
+        return mix64(rootSeed + (index + 1) * GOLDEN_GAMMA);
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    /**
+     * 由种子混合出一个奇数步长；0/1 交替太少的步长会让序列质量变差，翻转一下
+     */
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int transitions = Long.bitCount(z ^ (z >>> 1));
+        return transitions < 24 ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
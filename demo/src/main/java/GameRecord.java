@@ -0,0 +1,156 @@
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 一条游戏记录。二进制格式固定 32 字节（大端）：
+ *   时间戳毫秒(8) | 种子(8) | 分数(4) | 长度(4) | 时长秒(4) | 来源(1) | 保留(3)
+ * 文本形式与旧版记录文件的一行相同，用于导入导出
+ */
+public final class GameRecord {
+    public static final int SIZE = 32;
+
+    public static final int SOURCE_DESKTOP = 0;    // 图形版（旧文本记录没有来源字段）
+    public static final int SOURCE_CONSOLE = 1;    // 控制台版
+    public static final int SOURCE_SIMULATION = 2; // 批量模拟
+
+    private static final String[] SOURCE_NAMES = {"图形版", "控制台版", "模拟"};
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final long timestamp;
+    private final int score;
+    private final int length;
+    private final long durationSeconds;
+    private final int source;
+    private final long seed;
+
+    public GameRecord(long timestamp, int score, int length, long durationSeconds, int source, long seed) {
+        this.timestamp = timestamp;
+        this.score = score;
+        this.length = length;
+        this.durationSeconds = durationSeconds;
+        this.source = source;
+        this.seed = seed;
+    }
+
+    /**
+     * 按当前时间创建一条记录
+     */
+    public static GameRecord now(int score, int length, long durationSeconds, int source, long seed) {
+        return new GameRecord(System.currentTimeMillis(), score, length, durationSeconds, source, seed);
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putLong(timestamp);
+        buffer.putLong(seed);
+        buffer.putInt(score);
+        buffer.putInt(length);
+        buffer.putInt((int) durationSeconds);
+        buffer.put((byte) source);
+        buffer.put((byte) 0);
+        buffer.putShort((short) 0);
+    }
+
+    /**
+     * 从 offset 处读一条记录，不移动 buffer 的位置
+     */
+    public static GameRecord readFrom(ByteBuffer buffer, int offset) {
+        return new GameRecord(
+                buffer.getLong(offset),
+                buffer.getInt(offset + 16),
+                buffer.getInt(offset + 20),
+                buffer.getInt(offset + 24) & 0xFFFFFFFFL,
+                buffer.get(offset + 28),
+                buffer.getLong(offset + 8));
+    }
+
+    /**
+     * 只读分数字段，扫描时不用创建对象
+     */
+    static int scoreAt(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + 16);
+    }
+
+    /**
+     * 文本形式，与旧版记录文件的格式一致
+     */
+    public String toText() {
+        String text = String.format("%s | 分数: %d | 长度: %d | 时间: %02d:%02d",
+                DATE_FORMAT.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault())),
+                score, length, durationSeconds / 60, durationSeconds % 60);
+        if (source != SOURCE_DESKTOP) {
+            text += " | 来源: " + getSourceName();
+        }
+        return text;
+    }
+
+    /**
+     * 解析一行文本记录；格式不对时返回 null（旧文件里没有种子，记为0）
+     */
+    public static GameRecord parseText(String line) {
+        String[] parts = line.split(" \\| ");
+        if (parts.length < 4) {
+            return null;
+        }
+        try {
+            long timestamp = LocalDateTime.parse(parts[0].trim(), DATE_FORMAT)
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            int score = Integer.parseInt(valueOf(parts[1]));
+            int length = Integer.parseInt(valueOf(parts[2]));
+            String[] time = valueOf(parts[3]).split(":");
+            long duration = Long.parseLong(time[0]) * 60 + Long.parseLong(time[1]);
+            int source = SOURCE_DESKTOP;
+            if (parts.length > 4) {
+                String name = valueOf(parts[4]);
+                for (int i = 0; i < SOURCE_NAMES.length; i++) {
+                    if (SOURCE_NAMES[i].equals(name)) {
+                        source = i;
+                    }
+                }
+            }
+            return new GameRecord(timestamp, score, length, duration, source, 0);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // "分数: 12" -> "12"
+    private static String valueOf(String field) {
+        return field.substring(field.indexOf(':') + 1).trim();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public String getSourceName() {
+        return source >= 0 && source < SOURCE_NAMES.length ? SOURCE_NAMES[source] : "未知";
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return toText();
+    }
+}
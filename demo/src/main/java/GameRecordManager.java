@@ -1,125 +1,820 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * 游戏记录存放在只追加的二进制段文件里，每条记录定长 32 字节（见 GameRecord）。
+ *
+ * 目录 snake_records/ 下：
+ *   segment_NNNNNN.bin   一段原始记录："SNKG" | 版本(4字节) | 记录长度(4字节) | 保留(4字节) | 记录...
+ *   segment_NNNNNN.sum   压缩后的段："SNKS" | 版本(1字节) | 清单条目 | 条数(4字节) | 保留的记录...
+ *   manifest.idx         各段的条数、最低/最高分、时间范围和按天汇总（见 RecordManifest）
+ * 新记录追加在最后一段，满 MAX_SEGMENT_RECORDS 条或跨度超过 30 天就封存、开新段。
+ * 只保留最近 KEEP_RAW_SEGMENTS 个封存段的原始记录，更早的段在后台压缩成汇总：
+ * 清单里的统计不变，另外只留下排行榜用得到的记录，历史不会因为限制空间而被删掉。
+ *
+ * 读取时把段文件映射到内存，按下标直接定位记录，不用逐行解析；
+ * 末尾写了一半的记录（断电、进程被杀）会被忽略并在下次追加时覆盖。
+ * 旧版文本文件 snake_game_records.txt 在第一次打开时自动导入，之后只作为导入导出的文本视图；
+ * 分段之前的单文件日志 snake_game_records.bin 会被移进目录作为第一段。
+ * 局数、时间范围统计来自清单，最高分和排行榜由 Leaderboard 随追加增量维护，
+ * 保存在 snake_game_records.idx，这些查询都不读记录数据。
+ * 保存是异步的：记录交给后台 RecordWriter 成批写入（每批一次写入、一次 fsync），进程退出时由关闭钩子写完剩余记录。
+ * 查询方法不等待排队的记录，只看已经写入的；要读到刚保存的记录先调用 flush()（会等磁盘，不要在界面线程上调）。
+ * 导出、导入和清空会先 flush()
+ */
 public class GameRecordManager {
-    private static final String RECORD_FILE = "snake_game_records.txt";
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-    
+    private static final String RECORD_DIR = "snake_records";
+    private static final String MANIFEST_FILE = "manifest.idx";
+    private static final String LEGACY_RECORD_FILE = "snake_game_records.bin";
+    private static final String TEXT_FILE = "snake_game_records.txt";
+    private static final String INDEX_FILE = "snake_game_records.idx";
+
+    private static final byte[] MAGIC = {'S', 'N', 'K', 'G'};
+    private static final byte[] SUMMARY_MAGIC = {'S', 'N', 'K', 'S'};
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    static final int MAX_SEGMENT_RECORDS = 65536;                       // 每段最多 2MB
+    static final long MAX_SEGMENT_MILLIS = 30L * 24 * 60 * 60 * 1000;   // 每段最多跨 30 天
+    static final int KEEP_RAW_SEGMENTS = 8;
+
+    private static RecordManifest manifest;     // ensureFile() 之后才有
+    private static Leaderboard leaderboard;
+    private static volatile RecordWriter writer;
+    private static volatile boolean syncOnCommit = true;
+    private static ExecutorService compactor;
+    private static boolean compactionScheduled = false;
+
     /**
-     * 保存游戏记录
+     * 保存游戏记录（图形版）
      */
     public static void saveRecord(int score, int length, long gameTime) {
-        try (FileWriter writer = new FileWriter(RECORD_FILE, true);
-             BufferedWriter bw = new BufferedWriter(writer)) {
-            
-            String timestamp = DATE_FORMAT.format(new Date());
-            String record = String.format("%s | 分数: %d | 长度: %d | 时间: %02d:%02d",
-                    timestamp, score, length, 
-                    gameTime / 60, gameTime % 60);
-            
-            bw.write(record);
-            bw.newLine();
-            bw.flush();
-            
-            System.out.println("游戏记录已保存: " + record);
-        } catch (IOException e) {
-            System.err.println("保存游戏记录失败: " + e.getMessage());
+        saveRecord(GameRecord.now(score, length, gameTime, GameRecord.SOURCE_DESKTOP, 0));
+    }
+
+    /**
+     * 追加一条记录（后台写入，不阻塞调用线程）
+     */
+    public static void saveRecord(GameRecord record) {
+        submit(record);
+        System.out.println("游戏记录已加入保存队列: " + record.toText());
+    }
+
+    /**
+     * 不打印提示地提交一条记录，批量模拟用；队列满时阻塞。
+     * 不能持有本类的锁，否则写入线程拿不到锁，队列满时会卡死
+     */
+    public static void submit(GameRecord record) {
+        writer().submit(record);
+    }
+
+    /**
+     * 等待已提交的记录全部写入
+     */
+    public static void flush() {
+        RecordWriter current = writer;
+        if (current != null) {
+            current.flush();
         }
     }
-    
+
     /**
-     * 读取所有游戏记录
+     * 写完剩余记录并停止后台写入线程（关闭钩子会自动调用）；之后的保存改为同步写入
      */
-    public static List<String> loadRecords() {
-        List<String> records = new ArrayList<>();
-        
-        File file = new File(RECORD_FILE);
-        if (!file.exists()) {
-            return records;
+    public static void close() {
+        RecordWriter current = writer;
+        if (current != null) {
+            current.close();
         }
-        
-        try (FileReader reader = new FileReader(RECORD_FILE);
-             BufferedReader br = new BufferedReader(reader)) {
-            
+    }
+
+    /**
+     * 每批写完是否 fsync，默认开启
+     */
+    public static void setSyncOnCommit(boolean sync) {
+        syncOnCommit = sync;
+        RecordWriter current = writer;
+        if (current != null) {
+            current.setSync(sync);
+        }
+    }
+
+    private static synchronized RecordWriter writer() {
+        if (writer == null) {
+            writer = new RecordWriter(GameRecordManager::commit, GameRecordManager.class,
+                    RecordWriter.DEFAULT_CAPACITY, syncOnCommit);
+            Runtime.getRuntime().addShutdownHook(new Thread(GameRecordManager::close, "record-writer-shutdown"));
+        }
+        return writer;
+    }
+
+    /**
+     * 写入线程提交一批记录（已持有本类的锁）：日志一次写入，排行榜更新后保存一次
+     */
+    private static void commit(List<GameRecord> batch, boolean sync) throws IOException {
+        Leaderboard board = leaderboard();
+        append(batch, sync);
+        for (GameRecord record : batch) {
+            board.add(record);
+        }
+        saveLeaderboard(board);
+    }
+
+    /**
+     * 从文本文件导入记录（每行一条，格式同导出），返回导入的条数
+     */
+    public static synchronized int importText(File file) throws IOException {
+        flush();
+        ensureFile();
+        List<GameRecord> records = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = br.readLine()) != null) {
-                records.add(line);
+                GameRecord record = GameRecord.parseText(line);
+                if (record != null) {
+                    records.add(record);
+                }
             }
+        }
+        commit(records, syncOnCommit);
+        return records.size();
+    }
+
+    /**
+     * 清空所有记录（删除所有段和汇总，从一个新的空段开始；段编号接着往下排，不会与正在压缩的旧段重名）
+     */
+    public static synchronized boolean clearRecords() {
+        flush();
+        try {
+            ensureFile();
+            int nextId = manifest.getActive().getId() + 1;
+            for (RecordManifest.Segment segment : manifest.getSegments()) {
+                Files.deleteIfExists(segmentPath(segment.getId()));
+                Files.deleteIfExists(summaryPath(segment.getId()));
+            }
+            manifest = new RecordManifest();
+            createSegment(nextId, 0);
+            saveManifest();
+            leaderboard = new Leaderboard();
+            saveLeaderboard(leaderboard);
+            return true;
+        } catch (IOException e) {
+            System.err.println("清空游戏记录失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 记录条数（包括已压缩的段），来自清单
+     */
+    public static synchronized int getRecordCount() {
+        try {
+            ensureFile();
         } catch (IOException e) {
             System.err.println("读取游戏记录失败: " + e.getMessage());
+            return 0;
         }
-        
-        return records;
+        return (int) manifest.getTotalCount();
     }
-    
+
     /**
-     * 获取最高分记录
+     * 全部记录的局数、最低/最高分、平均分和时间范围，来自清单
      */
-    public static String getHighScore() {
-        List<String> records = loadRecords();
-        if (records.isEmpty()) {
-            return "暂无记录";
+    public static synchronized RecordStats getStats() {
+        try {
+            ensureFile();
+            return manifest.getStats();
+        } catch (IOException e) {
+            System.err.println("读取游戏记录失败: " + e.getMessage());
+            return new RecordStats();
         }
-        
-        int maxScore = 0;
-        String bestRecord = "";
-        
-        for (String record : records) {
-            try {
-                // 从记录中提取分数
-                int scoreStart = record.indexOf("分数: ") + 4;
-                int scoreEnd = record.indexOf(" |", scoreStart);
-                String scoreStr = record.substring(scoreStart, scoreEnd).trim();
-                int score = Integer.parseInt(scoreStr);
-                
-                if (score > maxScore) {
-                    maxScore = score;
-                    bestRecord = record;
+    }
+
+    /**
+     * 某个日期范围内（含两端）的统计，按清单里的每天汇总合并
+     */
+    public static synchronized RecordStats getStats(LocalDate from, LocalDate to) {
+        try {
+            ensureFile();
+            return manifest.getStats(from, to);
+        } catch (IOException e) {
+            System.err.println("读取游戏记录失败: " + e.getMessage());
+            return new RecordStats();
+        }
+    }
+
+    /**
+     * 读取第 from 条起的 count 条记录（按保存顺序）；已压缩的段只剩汇总，其中的记录不会返回
+     */
+    public static synchronized List<GameRecord> readRecords(int from, int count) {
+        flush();
+        List<GameRecord> records = new ArrayList<>();
+        try {
+            ensureFile();
+            long end = (long) from + count;
+            for (RecordManifest.Segment segment : manifest.getSegments()) {
+                if (!segment.hasData() || segment.getEndIndex() <= from || segment.getFirstIndex() >= end) {
+                    continue;
+                }
+                ByteBuffer buffer = map(segmentPath(segment.getId()));
+                long first = Math.max(from, segment.getFirstIndex());
+                long last = Math.min(end, segment.getFirstIndex() + Math.min(segment.getCount(), recordCount(buffer)));
+                for (long i = first; i < last; i++) {
+                    records.add(GameRecord.readFrom(buffer, offsetOf((int) (i - segment.getFirstIndex()))));
                 }
-            } catch (Exception e) {
-                // 解析失败，跳过这条记录
             }
+        } catch (IOException e) {
+            System.err.println("读取游戏记录失败: " + e.getMessage());
+        }
+        return records;
+    }
+
+    /**
+     * 读取所有还保留原始数据的记录的文本形式（导出用）
+     */
+    public static List<String> loadRecords() {
+        List<String> records = new ArrayList<>();
+        for (GameRecord record : readRecords(0, Integer.MAX_VALUE)) {
+            records.add(record.toText());
+        }
+        return records;
+    }
+
+    /**
+     * 获取最高分记录，直接取排行榜里记着的第一名
+     */
+    public static synchronized String getHighScore() {
+        try {
+            GameRecord best = leaderboard().getBest();
+            return best == null || best.getScore() <= 0 ? "暂无记录" : best.toText();
+        } catch (IOException e) {
+            System.err.println("读取游戏记录失败: " + e.getMessage());
+            return "暂无记录";
+        }
+    }
+
+    /**
+     * 总榜前 K 名（第一名在前）
+     */
+    public static synchronized List<GameRecord> getTopRecords() {
+        try {
+            return leaderboard().getTop();
+        } catch (IOException e) {
+            System.err.println("读取排行榜失败: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 某个来源（GameRecord.SOURCE_*）的前 K 名
+     */
+    public static synchronized List<GameRecord> getTopRecords(int source) {
+        try {
+            return leaderboard().getTopBySource(source);
+        } catch (IOException e) {
+            System.err.println("读取排行榜失败: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 某一天的前 K 名（只保留最近一个月）
+     */
+    public static synchronized List<GameRecord> getTopRecords(LocalDate date) {
+        try {
+            return leaderboard().getTopByDay(date);
+        } catch (IOException e) {
+            System.err.println("读取排行榜失败: " + e.getMessage());
+            return new ArrayList<>();
         }
-        
-        return bestRecord.isEmpty() ? "暂无记录" : bestRecord;
     }
-    
+
     /**
-     * 获取最近5条记录
+     * 获取最近 count 条记录（旧的在前），从文件末尾往前只读这几条
      */
-    public static List<String> getRecentRecords(int count) {
-        List<String> allRecords = loadRecords();
+    public static synchronized List<String> getRecentRecords(int count) {
         List<String> recent = new ArrayList<>();
-        
-        int start = Math.max(0, allRecords.size() - count);
-        for (int i = start; i < allRecords.size(); i++) {
-            recent.add(allRecords.get(i));
+        try (RecordTailReader reader = openTailReader()) {
+            List<GameRecord> records = reader.readPrevious(count);
+            for (int i = records.size() - 1; i >= 0; i--) {
+                recent.add(records.get(i).toText());
+            }
+        } catch (IOException e) {
+            System.err.println("读取游戏记录失败: " + e.getMessage());
         }
-        
         return recent;
     }
-    
+
     /**
-     * 获取记录文件大小信息
+     * 打开一个从最新记录往前分页的读取器，用完要关闭
      */
-    public static String getFileInfo() {
-        File file = new File(RECORD_FILE);
-        if (!file.exists()) {
+    public static synchronized RecordTailReader openTailReader() throws IOException {
+        return openTailReader(Long.MAX_VALUE);
+    }
+
+    /**
+     * 从下标 before 之前的记录开始往前翻（接着上一个读取器的 getPosition() 继续）
+     */
+    public static synchronized RecordTailReader openTailReader(long before) throws IOException {
+        ensureFile();
+        // 从最后一段往前，直到遇到已压缩的段
+        List<RecordManifest.Segment> segments = manifest.getSegments();
+        int first = segments.size();
+        while (first > 0 && segments.get(first - 1).hasData()) {
+            first--;
+        }
+        List<Path> files = new ArrayList<>();
+        long[] firstIndexes = new long[segments.size() - first];
+        for (int i = first; i < segments.size(); i++) {
+            files.add(segmentPath(segments.get(i).getId()));
+            firstIndexes[i - first] = segments.get(i).getFirstIndex();
+        }
+        return new RecordTailReader(files, firstIndexes, HEADER_SIZE, before);
+    }
+
+    /**
+     * 获取记录文件大小信息（只看清单和文件大小）
+     */
+    public static synchronized String getFileInfo() {
+        try {
+            ensureFile();
+            long bytes = 0;
+            for (RecordManifest.Segment segment : manifest.getSegments()) {
+                Path path = segment.hasData() ? segmentPath(segment.getId()) : summaryPath(segment.getId());
+                if (Files.exists(path)) {
+                    bytes += Files.size(path);
+                }
+            }
+            return String.format("记录目录: %s | 段数: %d（已压缩 %d） | 大小: %d KB | 记录数: %d",
+                    RECORD_DIR, manifest.getSegments().size(), manifest.getCompactedCount(),
+                    bytes / 1024, manifest.getTotalCount());
+        } catch (IOException e) {
             return "暂无记录文件";
         }
-        
-        long sizeKB = file.length() / 1024;
-        long recordCount = loadRecords().size();
-        
-        return String.format("记录文件: %s | 大小: %d KB | 记录数: %d",
-                file.getName(), sizeKB, recordCount);
+    }
+
+    /**
+     * 打开记录目录：读取清单（缺失或损坏时按段文件重建），核对最后一段的实际长度；
+     * 第一次创建时把分段前的单文件日志移进来，或者导入旧版文本记录
+     */
+    public static synchronized void ensureFile() throws IOException {
+        if (manifest != null) {
+            return;
+        }
+        Path dir = Paths.get(RECORD_DIR);
+        boolean fresh = !Files.isDirectory(dir);
+        Files.createDirectories(dir);
+        Path legacy = Paths.get(LEGACY_RECORD_FILE);
+        if (fresh && Files.exists(legacy) && Files.size(legacy) >= HEADER_SIZE) {
+            Files.move(legacy, segmentPath(1));
+            fresh = false;
+            System.out.println("已把 " + LEGACY_RECORD_FILE + " 移入 " + RECORD_DIR + " 作为第 1 段");
+        }
+
+        RecordManifest loaded = loadManifest();
+        manifest = loaded != null ? loaded : rebuildManifest();
+        if (manifest.getActive() == null) {
+            createSegment(1, 0);
+        }
+        reconcileActive();
+        for (RecordManifest.Segment segment : manifest.getSegments()) {
+            if (!segment.hasData()) {
+                // 上次压缩完没来得及删除原始数据
+                deleteQuietly(segmentPath(segment.getId()));
+            }
+        }
+        saveManifest();
+
+        if (fresh) {
+            System.out.println("创建游戏记录目录: " + dir.toAbsolutePath());
+            File textFile = new File(TEXT_FILE);
+            if (textFile.exists()) {
+                int imported = importText(textFile);
+                System.out.println("已从 " + TEXT_FILE + " 导入 " + imported + " 条记录");
+            }
+        }
+        scheduleCompaction();
+    }
+
+    /**
+     * 清单丢失时按目录里的段文件重建：压缩段读汇总文件里的条目，原始段重新统计
+     */
+    private static RecordManifest rebuildManifest() throws IOException {
+        TreeMap<Integer, Boolean> ids = new TreeMap<>();    // 编号 -> 是否已压缩
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(RECORD_DIR), "segment_*")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (!name.endsWith(".bin") && !name.endsWith(".sum")) {
+                    continue;   // 例如没写完的临时文件
+                }
+                try {
+                    int id = Integer.parseInt(name.substring("segment_".length(), name.length() - 4));
+                    ids.merge(id, name.endsWith(".sum"), Boolean::logicalOr);
+                } catch (NumberFormatException e) {
+                    // 不是段文件
+                }
+            }
+        }
+        RecordManifest rebuilt = new RecordManifest();
+        long nextIndex = 0;
+        for (Map.Entry<Integer, Boolean> entry : ids.entrySet()) {
+            RecordManifest.Segment segment;
+            if (entry.getValue()) {
+                segment = readSummary(summaryPath(entry.getKey()), new ArrayList<>());
+                segment.setState(RecordManifest.COMPACTED);
+            } else {
+                segment = new RecordManifest.Segment(entry.getKey(), nextIndex);
+                ByteBuffer buffer = map(segmentPath(entry.getKey()));
+                for (int i = 0; i < recordCount(buffer); i++) {
+                    segment.add(GameRecord.readFrom(buffer, offsetOf(i)));
+                }
+                segment.setState(RecordManifest.SEALED);
+            }
+            rebuilt.addSegment(segment);
+            nextIndex = segment.getEndIndex();
+        }
+        RecordManifest.Segment active = rebuilt.getActive();
+        if (active != null && active.hasData()) {
+            active.setState(RecordManifest.ACTIVE);
+        } else if (active != null) {
+            createSegment(rebuilt, active.getId() + 1, active.getEndIndex());
+        }
+        if (!ids.isEmpty()) {
+            System.out.println("记录清单已按 " + ids.size() + " 个段文件重建");
+        }
+        return rebuilt;
+    }
+
+    /**
+     * 最后一段的实际记录数与清单不符（清单保存前进程退出）时按文件重新统计这一段
+     */
+    private static void reconcileActive() throws IOException {
+        RecordManifest.Segment active = manifest.getActive();
+        Path path = segmentPath(active.getId());
+        if (!Files.exists(path)) {
+            writeSegmentHeader(path);
+        }
+        ByteBuffer buffer = map(path);
+        int count = recordCount(buffer);
+        if (count != active.getCount()) {
+            active.reset();
+            for (int i = 0; i < count; i++) {
+                active.add(GameRecord.readFrom(buffer, offsetOf(i)));
+            }
+        }
+    }
+
+    /**
+     * 取排行榜：第一次从索引文件加载，再补上索引之后追加的记录（已压缩的段用汇总里保留的记录补）；
+     * 索引文件缺失、损坏、比日志还新（记录被清空过）或停在某个已压缩段的中间时从头重建
+     */
+    private static Leaderboard leaderboard() throws IOException {
+        if (leaderboard != null) {
+            return leaderboard;
+        }
+        ensureFile();
+        long count = manifest.getTotalCount();
+        Leaderboard board = loadLeaderboard();
+        if (board == null || board.getRecordCount() > count || insideCompacted(board.getRecordCount())) {
+            board = new Leaderboard();
+        }
+        if (board.getRecordCount() < count) {
+            for (RecordManifest.Segment segment : manifest.getSegments()) {
+                long covered = board.getRecordCount();
+                if (segment.getEndIndex() <= covered) {
+                    continue;
+                }
+                if (segment.hasData()) {
+                    ByteBuffer buffer = map(segmentPath(segment.getId()));
+                    if (recordCount(buffer) < segment.getCount()) {
+                        throw new IOException("记录段被截断: " + segmentPath(segment.getId()).getFileName());
+                    }
+                    for (long i = covered; i < segment.getEndIndex(); i++) {
+                        board.add(GameRecord.readFrom(buffer, offsetOf((int) (i - segment.getFirstIndex()))));
+                    }
+                } else {
+                    List<GameRecord> kept = new ArrayList<>();
+                    readSummary(summaryPath(segment.getId()), kept);
+                    board.addSummary(kept, segment.getCount());
+                }
+            }
+            saveLeaderboard(board);
+        }
+        leaderboard = board;
+        return board;
+    }
+
+    private static boolean insideCompacted(long index) {
+        for (RecordManifest.Segment segment : manifest.getSegments()) {
+            if (!segment.hasData() && segment.getFirstIndex() < index && index < segment.getEndIndex()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Leaderboard loadLeaderboard() {
+        File file = new File(INDEX_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            return Leaderboard.readFrom(in);
+        } catch (IOException e) {
+            System.err.println("排行榜索引损坏，将重建: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 先写临时文件再整体替换，中途崩溃也不会留下半个索引
+     */
+    private static void saveLeaderboard(Leaderboard board) throws IOException {
+        Path target = Paths.get(INDEX_FILE);
+        Path temp = Paths.get(INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            board.writeTo(out);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 追加到最后一段，段满（条数或时间跨度）就封存、开新段；每段都在最后一条完整记录之后写入，
+     * 末尾残缺的半条记录被直接覆盖。写完保存清单，有需要时安排后台压缩
+     */
+    private static void append(List<GameRecord> records, boolean sync) throws IOException {
+        ensureFile();
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            RecordManifest.Segment active = manifest.getActive();
+            ByteBuffer buffer = ByteBuffer.allocate(records.size() * GameRecord.SIZE);
+            for (GameRecord record : records) {
+                if (isFull(active, record)) {
+                    writeRun(active, buffer, sync);
+                    active = manifest.rotate();
+                    writeSegmentHeader(segmentPath(active.getId()));
+                }
+                record.writeTo(buffer);
+                active.add(record);
+            }
+            writeRun(active, buffer, sync);
+            saveManifest();
+        } catch (IOException e) {
+            // 内存里的清单可能已经和文件对不上，下次使用时重新加载并核对
+            manifest = null;
+            leaderboard = null;
+            throw e;
+        }
+        scheduleCompaction();
+    }
+
+    private static boolean isFull(RecordManifest.Segment segment, GameRecord next) {
+        return segment.getCount() >= MAX_SEGMENT_RECORDS
+                || (segment.getCount() > 0 && next.getTimestamp() - segment.getFirstTime() >= MAX_SEGMENT_MILLIS);
+    }
+
+    /**
+     * 把缓冲里攒的记录写到段文件末尾，然后清空缓冲
+     */
+    private static void writeRun(RecordManifest.Segment segment, ByteBuffer buffer, boolean sync) throws IOException {
+        buffer.flip();
+        if (buffer.hasRemaining()) {
+            try (FileChannel channel = FileChannel.open(segmentPath(segment.getId()), StandardOpenOption.WRITE)) {
+                long position = HEADER_SIZE + (channel.size() - HEADER_SIZE) / GameRecord.SIZE * GameRecord.SIZE;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                if (sync) {
+                    channel.force(false);
+                }
+            }
+        }
+        buffer.clear();
+    }
+
+    private static void createSegment(int id, long firstIndex) throws IOException {
+        createSegment(manifest, id, firstIndex);
+    }
+
+    private static void createSegment(RecordManifest target, int id, long firstIndex) throws IOException {
+        target.addSegment(new RecordManifest.Segment(id, firstIndex));
+        writeSegmentHeader(segmentPath(id));
+    }
+
+    private static void writeSegmentHeader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(MAGIC).putInt(VERSION).putInt(GameRecord.SIZE).putInt(0);
+            header.flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+        }
+    }
+
+    /**
+     * 有超出保留数量的封存段时，交给后台线程压缩（同一时间最多排一个任务）
+     */
+    private static synchronized void scheduleCompaction() {
+        if (compactionScheduled || manifest.getCompactionCandidates(KEEP_RAW_SEGMENTS).isEmpty()) {
+            return;
+        }
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "record-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compactionScheduled = true;
+        compactor.execute(GameRecordManager::compactOldSegments);
+    }
+
+    /**
+     * 后台压缩：读封存段和写汇总文件都不持有锁，游戏照常保存记录；
+     * 只有最后改清单、删原始文件时才加锁。期间记录被清空（清单换了）就放弃这次压缩
+     */
+    private static void compactOldSegments() {
+        RecordManifest current;
+        List<RecordManifest.Segment> candidates;
+        synchronized (GameRecordManager.class) {
+            compactionScheduled = false;
+            if (manifest == null) {
+                return;
+            }
+            current = manifest;
+            candidates = manifest.getCompactionCandidates(KEEP_RAW_SEGMENTS);
+        }
+        for (RecordManifest.Segment segment : candidates) {
+            try {
+                // 封存的段不再变化，在锁外读取
+                Leaderboard board = new Leaderboard();
+                ByteBuffer buffer = map(segmentPath(segment.getId()));
+                int count = (int) Math.min(segment.getCount(), recordCount(buffer));
+                for (int i = 0; i < count; i++) {
+                    board.add(GameRecord.readFrom(buffer, offsetOf(i)));
+                }
+                writeSummary(segment, board.getRecords());
+            } catch (IOException e) {
+                System.err.println("压缩记录段失败: " + e.getMessage());
+                return;
+            }
+            synchronized (GameRecordManager.class) {
+                if (manifest != current || !current.contains(segment)
+                        || segment.getState() != RecordManifest.SEALED) {
+                    deleteQuietly(summaryPath(segment.getId()));
+                    return;
+                }
+                segment.setState(RecordManifest.COMPACTED);
+                try {
+                    saveManifest();
+                } catch (IOException e) {
+                    segment.setState(RecordManifest.SEALED);
+                    deleteQuietly(summaryPath(segment.getId()));
+                    System.err.println("压缩记录段失败: " + e.getMessage());
+                    return;
+                }
+                // 删不掉（例如还被读取器打开着）也没关系，下次启动时会清理
+                deleteQuietly(segmentPath(segment.getId()));
+            }
+        }
+    }
+
+    private static void writeSummary(RecordManifest.Segment segment, Collection<GameRecord> records) throws IOException {
+        Path target = summaryPath(segment.getId());
+        Path temp = Paths.get(target + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(records.size() * GameRecord.SIZE);
+        for (GameRecord record : records) {
+            record.writeTo(buffer);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.write(SUMMARY_MAGIC);
+            out.writeByte(VERSION);
+            segment.writeTo(out);
+            out.writeInt(records.size());
+            out.write(buffer.array());
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取汇总文件：返回其中的清单条目，保留的记录放进 records
+     */
+    private static RecordManifest.Segment readSummary(Path path, List<GameRecord> records) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            byte[] magic = new byte[SUMMARY_MAGIC.length];
+            in.readFully(magic);
+            for (int i = 0; i < SUMMARY_MAGIC.length; i++) {
+                if (magic[i] != SUMMARY_MAGIC[i]) {
+                    throw new IOException("不是记录汇总文件: " + path.getFileName());
+                }
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("不支持的汇总版本: " + version);
+            }
+            RecordManifest.Segment segment = RecordManifest.Segment.readFrom(in);
+            int count = in.readInt();
+            byte[] bytes = new byte[count * GameRecord.SIZE];
+            in.readFully(bytes);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            for (int i = 0; i < count; i++) {
+                records.add(GameRecord.readFrom(buffer, i * GameRecord.SIZE));
+            }
+            return segment;
+        }
+    }
+
+    private static RecordManifest loadManifest() {
+        Path path = Paths.get(RECORD_DIR, MANIFEST_FILE);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return RecordManifest.readFrom(in);
+        } catch (IOException e) {
+            System.err.println("记录清单损坏，将重建: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 同排行榜索引，先写临时文件再整体替换
+     */
+    private static void saveManifest() throws IOException {
+        Path target = Paths.get(RECORD_DIR, MANIFEST_FILE);
+        Path temp = Paths.get(RECORD_DIR, MANIFEST_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            manifest.writeTo(out);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 把一个段文件只读映射进内存（关闭通道后映射仍然有效），并检查文件头
+     */
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE) {
+                throw new IOException("不是游戏记录文件: " + path.getFileName());
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (buffer.get(i) != MAGIC[i]) {
+                    throw new IOException("不是游戏记录文件: " + path.getFileName());
+                }
+            }
+            if (buffer.getInt(8) != GameRecord.SIZE) {
+                throw new IOException("不支持的记录长度: " + buffer.getInt(8));
+            }
+            return buffer;
+        }
+    }
+
+    private static int recordCount(ByteBuffer buffer) {
+        return (buffer.limit() - HEADER_SIZE) / GameRecord.SIZE;
+    }
+
+    private static int offsetOf(int index) {
+        return HEADER_SIZE + index * GameRecord.SIZE;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // 留给下次启动清理
+        }
+    }
+
+    private static Path segmentPath(int id) {
+        return Paths.get(RECORD_DIR, String.format("segment_%06d.bin", id));
+    }
+
+    private static Path summaryPath(int id) {
+        return Paths.get(RECORD_DIR, String.format("segment_%06d.sum", id));
     }
 }
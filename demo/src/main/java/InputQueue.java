@@ -0,0 +1,156 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 每条蛇一个的有界输入队列，单生产者（EDT 或控制台线程）单消费者（tick 线程）。
+ * 读写序号各自只由一方推进，用 lazySet 发布，不加锁；满了就丢弃新输入并计数。
+ * tick 每次只取一个有效转向，两帧之间连按的几个方向会在后面几个tick依次生效。
+ * 每条输入记下入队时间，被取走时得到从按键到生效的延迟
+ */
+public class InputQueue {
+    public static final int DEFAULT_CAPACITY = 4;
+
+    // 队列里的输入编码：0-3 是 Direction 序号，另外两种是相对当前方向的转向
+    private static final int TURN_LEFT = 4;
+    private static final int TURN_RIGHT = 5;
+
+    private final int[] codes;
+    private final long[] stamps;            // 入队时的 System.nanoTime()
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();   // 下一个要读的序号，只有消费者推进
+    private final AtomicLong tail = new AtomicLong();   // 下一个要写的序号，只有生产者推进
+
+    // 统计：dropped 只由生产者写，其余只由消费者写
+    private volatile long dropped;
+    private volatile long accepted;
+    private volatile long lastLatencyNanos;
+    private volatile long maxLatencyNanos;
+
+    public InputQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * 容量向上取整到2的幂
+     */
+    public InputQueue(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.codes = new int[size];
+        this.stamps = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * 生产者：按绝对方向转向（方向键 / WASD）
+     */
+    public boolean offer(Direction dir) {
+        return offerCode(dir.ordinal());
+    }
+
+    /**
+     * 生产者：相对蛇生效时的方向左转（逆时针）
+     */
+    public boolean offerTurnLeft() {
+        return offerCode(TURN_LEFT);
+    }
+
+    /**
+     * 生产者：相对蛇生效时的方向右转（顺时针）
+     */
+    public boolean offerTurnRight() {
+        return offerCode(TURN_RIGHT);
+    }
+
+    private boolean offerCode(int code) {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            dropped++;
+            return false;
+        }
+        int i = (int) t & mask;
+        codes[i] = code;
+        stamps[i] = System.nanoTime();
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * 消费者：按当前方向取出下一个有效转向。与当前方向相同或相反的输入直接丢掉，
+     * 直到找到一个有效的或队列为空；没有时返回 null
+     */
+    public Direction poll(Direction current) {
+        long h = head.get();
+        long t = tail.get();
+        Direction result = null;
+        while (h < t && result == null) {
+            int i = (int) h & mask;
+            Direction dir = resolve(codes[i], current);
+            long stamp = stamps[i];
+            h++;
+            if (dir != current && !current.isOpposite(dir)) {
+                result = dir;
+                long latency = System.nanoTime() - stamp;
+                lastLatencyNanos = latency;
+                if (latency > maxLatencyNanos) {
+                    maxLatencyNanos = latency;
+                }
+                accepted++;
+            }
+        }
+        head.lazySet(h);
+        return result;
+    }
+
+    private static Direction resolve(int code, Direction current) {
+        switch (code) {
+            case TURN_LEFT:
+                switch (current) {
+                    case UP: return Direction.LEFT;
+                    case LEFT: return Direction.DOWN;
+                    case DOWN: return Direction.RIGHT;
+                    default: return Direction.UP;
+                }
+            case TURN_RIGHT:
+                switch (current) {
+                    case UP: return Direction.RIGHT;
+                    case RIGHT: return Direction.DOWN;
+                    case DOWN: return Direction.LEFT;
+                    default: return Direction.UP;
+                }
+            default:
+                return Direction.values()[code];
+        }
+    }
+
+    /**
+     * 还没被取走的输入条数（近似值，两边同时推进时仅供显示）
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return codes.length;
+    }
+
+    public long getAcceptedCount() {
+        return accepted;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * 最近一次生效的输入从入队到被tick取走的时间（纳秒）
+     */
+    public long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+}
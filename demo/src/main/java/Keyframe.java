@@ -0,0 +1,175 @@
+import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 回放关键帧：某个tick开始前的完整游戏状态，回放拖动时从最近的关键帧恢复再往后模拟。
+ *
+ * 内容依次为：tick数、两个刷新计时、两个随机流状态、分数与连击、
+ * 蛇（方向/待增长/步数/各节坐标差）、食物、按墙分组的障碍物、空闲格子索引的顺序。
+ * 空闲格子的顺序决定随机取格的结果，也要存下来才能逐tick重现
+ */
+public final class Keyframe {
+
+    private Keyframe() {
+    }
+
+    /**
+     * 编码当前状态；随机流不是 GameRandom（无法保存状态）时返回null
+     */
+    public static byte[] capture(GameLoop loop) {
+        if (!(loop.getFoodSpawner().getRandom() instanceof GameRandom)
+                || !(loop.getObstacleGenerator().getRandom() instanceof GameRandom)) {
+            return null;
+        }
+        World world = loop.getWorld();
+        int width = world.getWidth();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+
+        Replay.writeVarLong(out, loop.getTickCount());
+        Replay.writeVarLong(out, Math.max(0, loop.getFoodRefreshElapsed()));
+        Replay.writeVarLong(out, Math.max(0, loop.getMapRefreshElapsed()));
+        Replay.writeLong(out, ((GameRandom) loop.getFoodSpawner().getRandom()).getState());
+        Replay.writeLong(out, ((GameRandom) loop.getObstacleGenerator().getRandom()).getState());
+
+        ScoreManager scoreManager = loop.getScoreManager();
+        FoodType lastType = scoreManager.getLastFoodType();
+        Replay.writeVarLong(out, scoreManager.getScore());
+        Replay.writeVarLong(out, lastType == null ? 0 : lastType.ordinal() + 1);
+        Replay.writeVarLong(out, scoreManager.getConsecutiveCount());
+
+        // 蛇：第一节写绝对坐标，之后每节写与前一节的差（相邻两节差一格，通常各占1字节）
+        Snake snake = world.getSnake();
+        Replay.writeVarLong(out, snake.getCurrentDirection().ordinal());
+        Replay.writeVarLong(out, snake.getGrowthPending());
+        Replay.writeVarLong(out, snake.getMoveCount());
+        Replay.writeVarLong(out, snake.getLength());
+        int prevX = 0;
+        int prevY = 0;
+        for (int i = 0; i < snake.getLength(); i++) {
+            int cell = snake.getCell(i);
+            int x = Snake.unpackX(cell);
+            int y = Snake.unpackY(cell);
+            Replay.writeVarLong(out, zigZag(x - prevX));
+            Replay.writeVarLong(out, zigZag(y - prevY));
+            prevX = x;
+            prevY = y;
+        }
+
+        // 食物按列表顺序保存
+        List<Food> foods = world.getFoods();
+        Replay.writeVarLong(out, foods.size());
+        for (Food food : foods) {
+            Point p = food.getPosition();
+            Replay.writeVarLong(out, p.y * width + p.x);
+            Replay.writeVarLong(out, food.getType().ordinal());
+        }
+
+        Obstacles obstacles = world.getObstacles();
+        List<Wall> walls = obstacles == null ? List.of() : obstacles.getWalls();
+        Replay.writeVarLong(out, walls.size());
+        for (Wall wall : walls) {
+            Replay.writeVarLong(out, wall.getCells().size());
+            for (Point p : wall.getCells()) {
+                Replay.writeVarLong(out, zigZag(p.y * width + p.x));
+            }
+        }
+
+        int[] freeOrder = world.copyFreeCellOrder();
+        Replay.writeVarLong(out, freeOrder.length);
+        for (int cell : freeOrder) {
+            Replay.writeVarLong(out, cell);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 把关键帧恢复到一局刚创建（尚未初始化地图）的游戏上
+     */
+    public static void restore(byte[] data, GameLoop loop) throws IOException {
+        InputStream in = new ByteArrayInputStream(data);
+        World world = loop.getWorld();
+        int width = world.getWidth();
+
+        long tickCount = Replay.readVarLong(in);
+        long foodElapsed = Replay.readVarLong(in);
+        long mapElapsed = Replay.readVarLong(in);
+        long foodRandomState = readLong(in);
+        long obstacleRandomState = readLong(in);
+
+        int score = (int) Replay.readVarLong(in);
+        int lastType = (int) Replay.readVarLong(in);
+        int consecutive = (int) Replay.readVarLong(in);
+
+        Direction direction = Direction.values()[(int) Replay.readVarLong(in)];
+        int growthPending = (int) Replay.readVarLong(in);
+        long moveCount = Replay.readVarLong(in);
+        int[] body = new int[(int) Replay.readVarLong(in)];
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < body.length; i++) {
+            x += unZigZag(Replay.readVarLong(in));
+            y += unZigZag(Replay.readVarLong(in));
+            body[i] = Snake.pack(x, y);
+        }
+
+        List<Food> foods = new ArrayList<>();
+        int foodCount = (int) Replay.readVarLong(in);
+        for (int i = 0; i < foodCount; i++) {
+            int cell = (int) Replay.readVarLong(in);
+            FoodType type = FoodType.values()[(int) Replay.readVarLong(in)];
+            foods.add(new Food(new Point(cell % width, cell / width), type));
+        }
+
+        List<Wall> walls = new ArrayList<>();
+        int wallCount = (int) Replay.readVarLong(in);
+        for (int i = 0; i < wallCount; i++) {
+            List<Point> cells = new ArrayList<>();
+            int cellCount = (int) Replay.readVarLong(in);
+            for (int j = 0; j < cellCount; j++) {
+                int cell = unZigZag(Replay.readVarLong(in));
+                cells.add(new Point(Math.floorMod(cell, width), Math.floorDiv(cell, width)));
+            }
+            walls.add(new Wall(cells));
+        }
+
+        int[] freeOrder = new int[(int) Replay.readVarLong(in)];
+        for (int i = 0; i < freeOrder.length; i++) {
+            freeOrder[i] = (int) Replay.readVarLong(in);
+        }
+
+        world.setSnake(new Snake(body, direction, growthPending, moveCount, world.getSnakeCells()));
+        world.setObstacles(new Obstacles(width, world.getHeight(), walls));
+        world.setFoods(foods);
+        world.restoreFreeCellOrder(freeOrder);
+
+        ((GameRandom) loop.getFoodSpawner().getRandom()).setState(foodRandomState);
+        ((GameRandom) loop.getObstacleGenerator().getRandom()).setState(obstacleRandomState);
+        loop.getScoreManager().restore(score, lastType == 0 ? null : FoodType.values()[lastType - 1], consecutive);
+        loop.restoreProgress(tickCount, foodElapsed, mapElapsed);
+    }
+
+    private static long zigZag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    private static int unZigZag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("关键帧不完整");
+            }
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+}
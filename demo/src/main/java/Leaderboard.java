@@ -0,0 +1,252 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 排行榜索引：总榜、按来源的榜和按天的榜，各保留前 K 条。
+ * 每个榜是大小为 K 的小顶堆，加一条记录 O(log K)；最高分单独记着，查询 O(1)。
+ * 由 GameRecordManager 随记录日志增量维护，并保存到旁边的小文件里，启动时不用扫描全部记录
+ *
+ * 文件格式（snake_game_records.idx）：
+ *   "SNKL" | 版本(1字节) | K(4字节) | 已索引的记录数(8字节) | 总榜 | 来源数 | 各来源榜 | 天数 | (日期 | 榜)...
+ * 每个榜为条数(4字节)加上若干条 32 字节记录
+ */
+public class Leaderboard {
+    public static final int DEFAULT_SIZE = 10;
+    static final int MAX_DAYS = 31;     // 按天的榜只保留最近这么多天
+
+    private static final byte[] MAGIC = {'S', 'N', 'K', 'L'};
+    private static final int VERSION = 1;
+    private static final int SOURCE_COUNT = 3;
+
+    // 堆顶是最差的一条：分数低的更差，同分时后出现的更差
+    private static final Comparator<GameRecord> WORSE_FIRST = Comparator
+            .comparingInt(GameRecord::getScore)
+            .thenComparing(Comparator.comparingLong(GameRecord::getTimestamp).reversed());
+
+    private final int size;
+    private final Board overall;
+    private final Board[] bySource = new Board[SOURCE_COUNT];
+    private final TreeMap<Long, Board> byDay = new TreeMap<>();
+    private long recordCount;           // 已经计入索引的日志记录条数
+
+    public Leaderboard() {
+        this(DEFAULT_SIZE);
+    }
+
+    public Leaderboard(int size) {
+        this.size = size;
+        this.overall = new Board(size);
+        for (int i = 0; i < SOURCE_COUNT; i++) {
+            bySource[i] = new Board(size);
+        }
+    }
+
+    /**
+     * 一个榜：小顶堆保存前 K 条
+     */
+    static final class Board {
+        private final int size;
+        private final PriorityQueue<GameRecord> heap;
+        private GameRecord best;
+
+        Board(int size) {
+            this.size = size;
+            this.heap = new PriorityQueue<>(size + 1, WORSE_FIRST);
+        }
+
+        void add(GameRecord record) {
+            if (best == null || WORSE_FIRST.compare(record, best) > 0) {
+                best = record;
+            }
+            if (heap.size() < size) {
+                heap.offer(record);
+            } else if (WORSE_FIRST.compare(record, heap.peek()) > 0) {
+                heap.poll();
+                heap.offer(record);
+            }
+        }
+
+        /**
+         * 按名次排好的副本（第一名在前）
+         */
+        List<GameRecord> sorted() {
+            List<GameRecord> list = new ArrayList<>(heap);
+            list.sort(WORSE_FIRST.reversed());
+            return list;
+        }
+    }
+
+    /**
+     * 计入一条新记录（日志里下一条）
+     */
+    public void add(GameRecord record) {
+        addToBoards(record);
+        recordCount++;
+    }
+
+    /**
+     * 计入一个已压缩的段：records 是压缩时保留下来的那些记录（见 getRecords），
+     * 它包含了这段在每个榜上的前 K 名，所以合并后各榜结果与逐条加入相同；represented 是这段原本的条数
+     */
+    public void addSummary(Collection<GameRecord> records, long represented) {
+        for (GameRecord record : records) {
+            addToBoards(record);
+        }
+        recordCount += represented;
+    }
+
+    /**
+     * 所有榜上出现的记录（去重），压缩一段时只需保留这些
+     */
+    public Collection<GameRecord> getRecords() {
+        Set<GameRecord> records = Collections.newSetFromMap(new IdentityHashMap<>());
+        records.addAll(overall.heap);
+        for (Board board : bySource) {
+            records.addAll(board.heap);
+        }
+        for (Board board : byDay.values()) {
+            records.addAll(board.heap);
+        }
+        return records;
+    }
+
+    private void addToBoards(GameRecord record) {
+        overall.add(record);
+        int source = record.getSource();
+        if (source >= 0 && source < SOURCE_COUNT) {
+            bySource[source].add(record);
+        }
+        long day = dayOf(record.getTimestamp());
+        Board board = byDay.get(day);
+        if (board == null) {
+            if (byDay.size() >= MAX_DAYS) {
+                if (day < byDay.firstKey()) {
+                    return;
+                }
+                byDay.pollFirstEntry();
+            }
+            board = new Board(size);
+            byDay.put(day, board);
+        }
+        board.add(record);
+    }
+
+    /**
+     * 历史最高分记录，没有时返回 null
+     */
+    public GameRecord getBest() {
+        return overall.best;
+    }
+
+    public GameRecord getBest(int source) {
+        return source >= 0 && source < SOURCE_COUNT ? bySource[source].best : null;
+    }
+
+    public List<GameRecord> getTop() {
+        return overall.sorted();
+    }
+
+    public List<GameRecord> getTopBySource(int source) {
+        return source >= 0 && source < SOURCE_COUNT ? bySource[source].sorted() : new ArrayList<>();
+    }
+
+    /**
+     * 某一天的榜；超出保留天数或当天没有记录时为空
+     */
+    public List<GameRecord> getTopByDay(LocalDate date) {
+        Board board = byDay.get(date.toEpochDay());
+        return board != null ? board.sorted() : new ArrayList<>();
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    private static long dayOf(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(size);
+        out.writeLong(recordCount);
+        writeBoard(out, overall);
+        out.writeInt(SOURCE_COUNT);
+        for (Board board : bySource) {
+            writeBoard(out, board);
+        }
+        out.writeInt(byDay.size());
+        for (Map.Entry<Long, Board> entry : byDay.entrySet()) {
+            out.writeLong(entry.getKey());
+            writeBoard(out, entry.getValue());
+        }
+    }
+
+    public static Leaderboard readFrom(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) {
+                throw new IOException("不是排行榜文件");
+            }
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("不支持的排行榜版本: " + version);
+        }
+        Leaderboard leaderboard = new Leaderboard(in.readInt());
+        long recordCount = in.readLong();
+        readBoard(in, leaderboard.overall);
+        int sources = in.readInt();
+        for (int i = 0; i < sources; i++) {
+            readBoard(in, i < SOURCE_COUNT ? leaderboard.bySource[i] : new Board(leaderboard.size));
+        }
+        int days = in.readInt();
+        for (int i = 0; i < days; i++) {
+            Board board = new Board(leaderboard.size);
+            leaderboard.byDay.put(in.readLong(), board);
+            readBoard(in, board);
+        }
+        leaderboard.recordCount = recordCount;
+        return leaderboard;
+    }
+
+    private static void writeBoard(DataOutputStream out, Board board) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(board.heap.size() * GameRecord.SIZE);
+        for (GameRecord record : board.heap) {
+            record.writeTo(buffer);
+        }
+        out.writeInt(board.heap.size());
+        out.write(buffer.array());
+    }
+
+    private static void readBoard(DataInputStream in, Board board) throws IOException {
+        int count = in.readInt();
+        byte[] bytes = new byte[count * GameRecord.SIZE];
+        in.readFully(bytes);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        for (int i = 0; i < count; i++) {
+            board.add(GameRecord.readFrom(buffer, i * GameRecord.SIZE));
+        }
+    }
+}
@@ -1,16 +1,8 @@
 import java.awt.Point;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Scanner;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 public class Main {
-    private static volatile char nextDirectionInput = '\0'; // 用户输入的方向
     private static volatile boolean quit = false;
     
     public static void main(String[] args) throws Exception {
@@ -31,13 +23,18 @@ public class Main {
         FoodSpawner foodSpawner = worldManager.getFoodSpawner();
         
         // 4. 创建游戏循环（同步版本）
-        GameLoop gameLoop = new GameLoop(world, ruleEngine, scoreManager, foodSpawner);
+        GameLoop gameLoop = new GameLoop(world, ruleEngine, scoreManager, foodSpawner,
+                worldManager.getObstacleGenerator(), GameClock.SYSTEM);
+        
+        // 录制回放（种子 + 输入），结束时保存
+        ReplayRecorder recorder = new ReplayRecorder(worldManager.getSeed(), width, height, 2000);
+        gameLoop.setRecorder(recorder);
         
         // 5. 显示游戏说明
         printInstructions();
         
         System.out.println("\n初始地图:");
-        printGameMap(world);
+        printGameMap(gameLoop.getSnapshot());
 
         System.out.println("\n按回车键开始游戏...");
         Scanner scanner = new Scanner(System.in);
@@ -54,30 +51,31 @@ public class Main {
         // 记录游戏开始时间
         long startTime = System.currentTimeMillis();
         
-        // 7. 创建定时器，每2秒自动移动一次
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-        scheduler.scheduleAtFixedRate(() -> {
-            if (!gameLoop.isRunning() || gameLoop.isPaused() || quit) {
-                return;
+        // 7. 由游戏循环的固定步长驱动，每2秒自动移动一次
+        gameLoop.startDriver(2000, () -> {
+            if (quit || !gameLoop.isRunning()) {
+                return false;
+            }
+            if (gameLoop.isPaused()) {
+                return true;
             }
             
-            // 处理方向输入
-            processDirectionInput(world);
-            
-            // 执行游戏tick（蛇移动并检查）
+            // 执行游戏tick（先从蛇的输入队列取一个转向）（蛇移动并检查）
             boolean stillRunning = gameLoop.tick();
-            if (!stillRunning) {
+            if (!stillRunning || ruleEngine.isGameOver()) {
                 System.out.println("\n游戏结束: " + ruleEngine.getGameOverReason());
-                scheduler.shutdown();
+                return false;
             }
-        }, 0, 2, TimeUnit.SECONDS); // 每2秒执行一次（原1秒）
+            return true;
+        });
         
         // 8. 主控制循环（只处理用户输入）
         boolean gameActive = true;
         
         while (gameActive && !quit) {
-            // 显示当前状态（每秒更新一次）
-            displayStatus(gameLoop, world, scoreManager, ruleEngine);
+            // 显示当前状态（每秒更新一次）；只读模拟线程发布的快照
+            WorldSnapshot snapshot = gameLoop.getSnapshot();
+            displayStatus(gameLoop, snapshot);
             
             // 获取用户输入（非阻塞）
             if (System.in.available() > 0) {
@@ -91,9 +89,11 @@ public class Main {
                 switch (command) {
                     case 'a':
                     case 'd':
-                        // 记录方向输入，在下一次tick时处理
-                        nextDirectionInput = command;
-                        System.out.println("指令已接收: " + (command == 'a' ? "左转" : "右转"));
+                        // 转向入队，按顺序在之后的tick里生效
+                        InputQueue inputs = world.getSnake().getInputQueue();
+                        boolean queued = command == 'a' ? inputs.offerTurnLeft() : inputs.offerTurnRight();
+                        System.out.println((queued ? "指令已接收: " : "输入过多，已忽略: ")
+                                + (command == 'a' ? "左转" : "右转"));
                         break;
                     case 'p':
                         if (!gameLoop.isPaused()) {
@@ -108,12 +108,12 @@ public class Main {
                         }
                         break;
                     case 'm':
-                        printGameMap(world);
+                        printGameMap(gameLoop.getSnapshot());
                         break;
                     case 'q':
                         quit = true;
                         System.out.println("退出游戏");
-                        scheduler.shutdown();
+                        gameLoop.stopDriver();
                         break;
                     default:
                         System.out.println("未知命令，请重新输入");
@@ -130,98 +130,57 @@ public class Main {
             }
             
             // 检查游戏是否结束
-            if (ruleEngine.isGameOver()) {
+            WorldSnapshot latest = gameLoop.getSnapshot();
+            if (latest.isGameOver()) {
                 gameActive = false;
-                scheduler.shutdown();
+                gameLoop.stopDriver();
                 
                 // 计算游戏时间
                 long gameTime = (System.currentTimeMillis() - startTime) / 1000;
                 
                 // 保存游戏记录
-                saveGameRecord(scoreManager, world, gameTime);
+                saveGameRecord(latest, gameTime, worldManager.getSeed());
+                saveReplay(recorder, latest);
             }
         }
         
-        // 9. 等待定时器关闭
-        scheduler.shutdown();
+        // 9. 等待驱动线程关闭
+        gameLoop.stopDriver();
         try {
-            scheduler.awaitTermination(2, TimeUnit.SECONDS);
+            gameLoop.awaitDriver(2000);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
         
         // 10. 游戏结束，显示最终结果
         scanner.close();
-        printFinalResults(scoreManager, world);
+        printFinalResults(gameLoop.getSnapshot());
         
         System.out.println("\n感谢游玩！");
     }
     
-    /**
-     * 处理方向输入
-     */
-    private static void processDirectionInput(World world) {
-        if (nextDirectionInput != '\0') {
-            Snake snake = world.getSnake();
-            Direction currentDir = snake.getCurrentDirection();
-            Direction newDir = currentDir;
-            
-            switch (nextDirectionInput) {
-                case 'a': // 左转
-                    if (currentDir == Direction.UP) {
-                        newDir = Direction.LEFT;
-                    } else if (currentDir == Direction.DOWN) {
-                        newDir = Direction.RIGHT;
-                    } else if (currentDir == Direction.LEFT) {
-                        newDir = Direction.DOWN;
-                    } else if (currentDir == Direction.RIGHT) {
-                        newDir = Direction.UP;
-                    }
-                    break;
-                case 'd': // 右转
-                    if (currentDir == Direction.UP) {
-                        newDir = Direction.RIGHT;
-                    } else if (currentDir == Direction.DOWN) {
-                        newDir = Direction.LEFT;
-                    } else if (currentDir == Direction.LEFT) {
-                        newDir = Direction.UP;
-                    } else if (currentDir == Direction.RIGHT) {
-                        newDir = Direction.DOWN;
-                    }
-                    break;
-            }
-            
-            // 检查是否与当前方向相反（不允许直接反向）
-            if (!currentDir.isOpposite(newDir)) {
-                snake.changeDirection(newDir);
-            }
-            
-            // 清空输入
-            nextDirectionInput = '\0';
-        }
-    }
-    
     /**
      * 显示游戏状态
      */
-    private static void displayStatus(GameLoop gameLoop, World world, ScoreManager scoreManager, RuleEngine ruleEngine) {
+    private static void displayStatus(GameLoop gameLoop, WorldSnapshot snapshot) {
         System.out.println("\n==================================");
         System.out.println("当前状态: " + (gameLoop.isPaused() ? "暂停" : "运行中"));
-        System.out.println("分数: " + scoreManager.getScore());
-        System.out.println("蛇长度: " + world.getSnake().getLength());
-        System.out.println("当前方向: " + world.getSnake().getCurrentDirection());
-        System.out.println("场上食物: " + world.getFoods().size() + "个");
+        System.out.println("分数: " + snapshot.getScore());
+        System.out.println("蛇长度: " + snapshot.getSnakeLength());
+        System.out.println("当前方向: " + snapshot.getDirection());
+        System.out.println("场上食物: " + snapshot.getFoods().size() + "个");
+        System.out.println("最近输入延迟: " + gameLoop.getWorld().getSnake().getInputQueue().getLastLatencyNanos() / 1_000_000 + "毫秒");
         
         // 显示食物刷新倒计时
-        long timeUntilFoodRefresh = gameLoop.getTimeUntilNextFoodRefresh();
+        long timeUntilFoodRefresh = snapshot.getTimeUntilFoodRefresh();
         System.out.println("距离下次食物刷新: " + (timeUntilFoodRefresh / 1000) + "秒");
         
         // 显示地图刷新倒计时
-        long timeUntilMapRefresh = gameLoop.getTimeUntilNextMapRefresh();
+        long timeUntilMapRefresh = snapshot.getTimeUntilMapRefresh();
         System.out.println("距离下次地图刷新: " + (timeUntilMapRefresh / 1000) + "秒");
         
         // 显示小型地图
-        printSimpleMap(world);
+        printSimpleMap(snapshot);
     }
     
     /**
@@ -249,11 +208,10 @@ public class Main {
     /**
      * 打印简单地图（只显示蛇周围区域）
      */
-    private static void printSimpleMap(World world) {
-        Snake snake = world.getSnake();
-        if (snake == null) return;
+    private static void printSimpleMap(WorldSnapshot world) {
+        if (!world.hasSnake()) return;
         
-        Point head = snake.getHead();
+        Point head = new Point(world.getHeadX(), world.getHeadY());
         int viewRadius = 5; // 显示蛇头周围5格
         
         int minX = Math.max(0, head.x - viewRadius);
@@ -271,24 +229,23 @@ public class Main {
         for (int y = minY; y <= maxY; y++) {
             System.out.print(y % 10 + " ");
             for (int x = minX; x <= maxX; x++) {
-                Point current = new Point(x, y);
                 char symbol = '.';
                 
-                if (world.getSnake() != null) {
-                    if (world.getSnake().getHead().equals(current)) {
+                if (world.hasSnake()) {
+                    if (world.getHeadX() == x && world.getHeadY() == y) {
                         // 根据方向显示不同的蛇头符号
-                        Direction dir = snake.getCurrentDirection();
+                        Direction dir = world.getDirection();
                         switch (dir) {
                             case UP: symbol = '↑'; break;
                             case DOWN: symbol = '↓'; break;
                             case LEFT: symbol = '←'; break;
                             case RIGHT: symbol = '→'; break;
                         }
-                    } else if (world.getSnake().contains(current)) {
+                    } else if (world.snakeContains(x, y)) {
                         symbol = 'o'; // 蛇身
                     } else {
                         // 检查是否有食物在这个位置
-                        Food food = world.getFoodAt(current);
+                        Food food = world.getFoodAt(x, y);
                         if (food != null) {
                             switch (food.getType()) {
                                 case NORMAL:
@@ -301,7 +258,7 @@ public class Main {
                                     symbol = '&';
                                     break;
                             }
-                        } else if (world.getObstacles() != null && world.getObstacles().getAllCells().contains(current)) {
+                        } else if (world.isBlocked(x, y)) {
                             symbol = '#'; // 障碍物
                         }
                     }
@@ -318,7 +275,7 @@ public class Main {
     /**
      * 打印完整游戏地图
      */
-    private static void printGameMap(World world) {
+    private static void printGameMap(WorldSnapshot world) {
         System.out.println("\n完整地图 (" + world.getWidth() + "x" + world.getHeight() + "):");
         System.out.print("  ");
         for (int x = 0; x < world.getWidth(); x++) {
@@ -329,27 +286,25 @@ public class Main {
         for (int y = 0; y < world.getHeight(); y++) {
             System.out.print(y % 10 + " ");
             for (int x = 0; x < world.getWidth(); x++) {
-                Point current = new Point(x, y);
                 char symbol = '.';
                 
-                if (!world.inBounds(current)) {
+                if (!world.inBounds(x, y)) {
                     symbol = '#';
-                } else if (world.getSnake() != null) {
-                    Snake snake = world.getSnake();
-                    if (snake.getHead().equals(current)) {
+                } else if (world.hasSnake()) {
+                    if (world.getHeadX() == x && world.getHeadY() == y) {
                         // 根据方向显示不同的蛇头符号
-                        Direction dir = snake.getCurrentDirection();
+                        Direction dir = world.getDirection();
                         switch (dir) {
                             case UP: symbol = '↑'; break;
                             case DOWN: symbol = '↓'; break;
                             case LEFT: symbol = '←'; break;
                             case RIGHT: symbol = '→'; break;
                         }
-                    } else if (snake.contains(current)) {
+                    } else if (world.snakeContains(x, y)) {
                         symbol = 'o'; // 蛇身
                     } else {
                         // 检查是否有食物在这个位置
-                        Food food = world.getFoodAt(current);
+                        Food food = world.getFoodAt(x, y);
                         if (food != null) {
                             switch (food.getType()) {
                                 case NORMAL:
@@ -362,7 +317,7 @@ public class Main {
                                     symbol = '&';
                                     break;
                             }
-                        } else if (world.getObstacles() != null && world.getObstacles().getAllCells().contains(current)) {
+                        } else if (world.isBlocked(x, y)) {
                             symbol = '#'; // 障碍物
                         }
                     }
@@ -379,40 +334,26 @@ public class Main {
     /**
      * 保存游戏记录到文件
      */
-    private static void saveGameRecord(ScoreManager scoreManager, World world, long gameTime) {
+    private static void saveGameRecord(WorldSnapshot snapshot, long gameTime, long seed) {
+        GameRecordManager.saveRecord(GameRecord.now(snapshot.getScore(), snapshot.getSnakeLength(),
+                gameTime, GameRecord.SOURCE_CONSOLE, seed));
+    }
+    private static void saveReplay(ReplayRecorder recorder, WorldSnapshot snapshot) {
+        recorder.finish(snapshot.getTick(), snapshot.getScore(), snapshot.getSnakeLength());
         try {
-            String fileName = "snake_game_records.txt";
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            String timestamp = dateFormat.format(new Date());
-            
-            try (FileWriter writer = new FileWriter(fileName, true);
-                 BufferedWriter bw = new BufferedWriter(writer)) {
-                
-                String record = String.format("%s | 分数: %d | 长度: %d | 时间: %02d:%02d | 来源: 控制台版",
-                        timestamp, 
-                        scoreManager.getScore(),
-                        world.getSnake() != null ? world.getSnake().getLength() : 0,
-                        gameTime / 60, gameTime % 60);
-                
-                bw.write(record);
-                bw.newLine();
-                bw.flush();
-                
-                System.out.println("\n游戏记录已保存到文件: " + fileName);
-                System.out.println("记录内容: " + record);
-            }
+            System.out.println("回放已保存到文件: " + recorder.saveToDirectory("replays"));
         } catch (IOException e) {
-            System.err.println("保存记录失败: " + e.getMessage());
+            System.err.println("保存回放失败: " + e.getMessage());
         }
     }
     
     /**
      * 打印最终结果
      */
-    private static void printFinalResults(ScoreManager scoreManager, World world) {
+    private static void printFinalResults(WorldSnapshot snapshot) {
         System.out.println("\n========== 游戏结束 ==========");
-        System.out.println("最终分数: " + scoreManager.getScore());
-        System.out.println("蛇最终长度: " + (world.getSnake() != null ? world.getSnake().getLength() : 0));
+        System.out.println("最终分数: " + snapshot.getScore());
+        System.out.println("蛇最终长度: " + snapshot.getSnakeLength());
         System.out.println("=============================\n");
     }
 }
\ No newline at end of file
@@ -4,18 +4,28 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.random.RandomGenerator;
 
 public class ObstacleGenerator {
 
     private final World world;
-    private final Random random = new Random();
+    private final RandomGenerator random;
 
     private final int minWallLength = 3;
     private final int maxWallLength = 8;
     private final int maxTryPerWall = 10;
 
     public ObstacleGenerator(World world) {
+        this(world, new Random());
+    }
+
+    public ObstacleGenerator(World world, RandomGenerator random) {
         this.world = world;
+        this.random = random;
+    }
+
+    public RandomGenerator getRandom() {
+        return random;
     }
 
     public Obstacles generate(int maxTotalCells) {
@@ -26,7 +36,7 @@ public class ObstacleGenerator {
      * 生成障碍物，避开指定的位置
      */
     public Obstacles generate(int maxTotalCells, Set<Point> positionsToAvoid) {
-        Obstacles obstacles = new Obstacles();
+        List<Wall> walls = new ArrayList<>();
         int remaining = maxTotalCells;
 
         while (remaining >= minWallLength) {
@@ -34,10 +44,133 @@ public class ObstacleGenerator {
             if (wall == null) {
                 break;
             }
-            obstacles.addWall(wall);
+            walls.add(wall);
+            remaining -= wall.getCells().size();
+        }
+        return new Obstacles(world.getWidth(), world.getHeight(), walls);
+    }
+
+    /**
+     * 单遍生成保证连通的障碍物：逐格放墙时检查该格周围 3x3，
+     * 只有放下后四周的可走格子仍在局部连通时才放，因此整张图的可走区域始终连通，
+     * 不需要事后检查和重试。蛇身和食物所在格视为可走（不会放墙，但也不算隔断）
+     */
+    public Obstacles generateConnected(int maxTotalCells, Set<Point> positionsToAvoid) {
+        int width = world.getWidth();
+        int height = world.getHeight();
+        boolean[] reserved = new boolean[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (world.getSnakeCells().get(x, y) > 0 || world.getFoodAt(x, y) != null) {
+                    reserved[y * width + x] = true;
+                }
+            }
+        }
+        for (Point p : positionsToAvoid) {
+            if (world.inBounds(p)) {
+                reserved[p.y * width + p.x] = true;
+            }
+        }
+        return generateConnected(maxTotalCells, reserved);
+    }
+
+    /**
+     * 按保留格子表生成连通障碍物；reserved 下标为 y * width + x
+     */
+    public Obstacles generateConnected(int maxTotalCells, boolean[] reserved) {
+        int width = world.getWidth();
+        int height = world.getHeight();
+        boolean[] blocked = new boolean[width * height];
+        List<Wall> walls = new ArrayList<>();
+        int remaining = maxTotalCells;
+
+        while (remaining >= minWallLength) {
+            Wall wall = tryGenerateConnectedWall(remaining, reserved, blocked);
+            if (wall == null) {
+                break;
+            }
+            walls.add(wall);
             remaining -= wall.getCells().size();
         }
-        return obstacles;
+        return new Obstacles(width, height, walls);
+    }
+
+    private Wall tryGenerateConnectedWall(int remaining, boolean[] reserved, boolean[] blocked) {
+        int width = world.getWidth();
+        for (int attempt = 0; attempt < maxTryPerWall; attempt++) {
+
+            boolean horizontal = random.nextBoolean();
+            Point start = randomPointInWorld();
+
+            int maxLenByBoundary = computeMaxLength(start, horizontal);
+            int maxLen = Math.min(maxLenByBoundary, remaining);
+            maxLen = Math.min(maxLen, maxWallLength);
+
+            if (maxLen < minWallLength) {
+                continue;
+            }
+
+            int length = random.nextInt(maxLen - minWallLength + 1) + minWallLength;
+
+            List<Point> cells = new ArrayList<>();
+            boolean valid = true;
+
+            for (int i = 0; i < length; i++) {
+                int x = start.x + (horizontal ? i : 0);
+                int y = start.y + (horizontal ? 0 : i);
+                int idx = y * width + x;
+
+                if (reserved[idx] || blocked[idx] || !keepsConnected(blocked, x, y)) {
+                    valid = false;
+                    break;
+                }
+                // 先占上，后面的格子要在此基础上判断
+                blocked[idx] = true;
+                cells.add(new Point(x, y));
+            }
+
+            if (valid) {
+                return new Wall(cells);
+            }
+            // 回滚这面墙已放下的格子
+            for (Point p : cells) {
+                blocked[p.y * width + p.x] = false;
+            }
+        }
+        return null;
+    }
+
+    // 3x3 邻域按顺时针排列：N, NE, E, SE, S, SW, W, NW
+    private static final int[] RING_DX = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] RING_DY = {-1, -1, 0, 1, 1, 1, 0, -1};
+    private final boolean[] ringOpen = new boolean[8];
+
+    /**
+     * 把 (x, y) 变成墙后，它上下左右的可走格子是否仍能在 3x3 邻域内互相到达。
+     * 局部连通是全局连通的充分条件：任何经过该格的路径都能绕过去
+     */
+    private boolean keepsConnected(boolean[] blocked, int x, int y) {
+        boolean[] open = ringOpen;
+        for (int i = 0; i < 8; i++) {
+            int nx = x + RING_DX[i];
+            int ny = y + RING_DY[i];
+            open[i] = world.inBounds(nx, ny) && !blocked[ny * world.getWidth() + nx];
+        }
+
+        int openEdges = 0;
+        int links = 0;
+        for (int k = 0; k < 8; k += 2) {
+            if (!open[k]) {
+                continue;
+            }
+            openEdges++;
+            // 相邻两条边通过中间的角格相连
+            if (open[(k + 2) % 8] && open[k + 1]) {
+                links++;
+            }
+        }
+        int groups = openEdges - links;
+        return groups <= 1;
     }
 
     private Wall tryGenerateOneWall(int remaining, Set<Point> positionsToAvoid) {
@@ -1,23 +1,104 @@
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * 不可变的障碍物层：构建时一次性建好位图索引和格子数组，之后只读
+ */
 public class Obstacles {
-    private final List<Wall> walls = new ArrayList<>();
+    private final int width;
+    private final int height;
+    private final List<Wall> walls;
+    private final long[] blocked;     // 每格一位
+    private final List<Point> cells;  // 去重后的障碍格子（绘制用）
 
-    public void addWall(Wall wall) {
-        walls.add(wall);
+    public Obstacles(int width, int height, List<Wall> walls) {
+        this.width = width;
+        this.height = height;
+        this.walls = Collections.unmodifiableList(new ArrayList<>(walls));
+        this.blocked = new long[(width * height + 63) >>> 6];
+
+        List<Point> all = new ArrayList<>();
+        for (Wall w : walls) {
+            for (Point p : w.getCells()) {
+                if (p.x < 0 || p.x >= width || p.y < 0 || p.y >= height) {
+                    continue;
+                }
+                int idx = p.y * width + p.x;
+                long bit = 1L << idx;
+                if ((blocked[idx >>> 6] & bit) == 0) {
+                    blocked[idx >>> 6] |= bit;
+                    all.add(new Point(p));
+                }
+            }
+        }
+        this.cells = Collections.unmodifiableList(Arrays.asList(all.toArray(new Point[0])));
+    }
+
+    /**
+     * 空障碍物层
+     */
+    public static Obstacles empty(int width, int height) {
+        return new Obstacles(width, height, Collections.emptyList());
+    }
+
+    /**
+     * 返回去掉指定格子后的新障碍物层（墙可能因此断开或变短）
+     */
+    public Obstacles withoutCells(Set<Point> removed) {
+        if (removed.isEmpty()) {
+            return this;
+        }
+        List<Wall> kept = new ArrayList<>();
+        for (Wall w : walls) {
+            List<Point> remaining = new ArrayList<>();
+            for (Point p : w.getCells()) {
+                if (!removed.contains(p)) {
+                    remaining.add(p);
+                }
+            }
+            if (!remaining.isEmpty()) {
+                kept.add(remaining.size() == w.getCells().size() ? w : new Wall(remaining));
+            }
+        }
+        return new Obstacles(width, height, kept);
     }
 
     public List<Wall> getWalls() {
         return walls;
     }
 
+    /**
+     * 所有障碍格子（已缓存，不会每次复制）
+     */
     public List<Point> getAllCells() {
-        List<Point> all = new ArrayList<>();
-        for (Wall w : walls) {
-            all.addAll(w.getCells());
+        return cells;
+    }
+
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    public boolean isBlocked(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return false;
         }
-        return all;
+        int idx = y * width + x;
+        return (blocked[idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    public boolean isBlocked(Point p) {
+        return isBlocked(p.x, p.y);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
     }
 }
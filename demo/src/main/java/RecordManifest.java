@@ -0,0 +1,291 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 分段记录的清单：每段的起始下标、条数、最低/最高分、时间范围，以及按天的汇总。
+ * 局数、最高分和按日期范围的统计都只查清单，不读记录数据；段被压缩后清单里的汇总仍然保留。
+ *
+ * 文件格式（manifest.idx）：
+ *   "SNKM" | 版本(1字节) | 段数(4字节) | 段...
+ * 每段：编号(4) | 起始下标(8) | 状态(1) | 汇总 | 天数(4) | (日期(8) | 汇总)...
+ * 汇总：条数(8) | 最低分(4) | 最高分(4) | 总分(8) | 最早时间(8) | 最晚时间(8)
+ */
+public class RecordManifest {
+    private static final byte[] MAGIC = {'S', 'N', 'K', 'M'};
+    private static final int VERSION = 1;
+
+    // 段的状态：正在追加、已封存（不再变化）、已压缩（原始记录删掉，只剩汇总和排行榜所需的记录）
+    public static final int ACTIVE = 0;
+    public static final int SEALED = 1;
+    public static final int COMPACTED = 2;
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    /**
+     * 一组记录的计数和极值
+     */
+    static final class Totals {
+        long count;
+        int minScore = Integer.MAX_VALUE;
+        int maxScore = Integer.MIN_VALUE;
+        long scoreSum;
+        long firstTime = Long.MAX_VALUE;
+        long lastTime = Long.MIN_VALUE;
+
+        void add(GameRecord record) {
+            count++;
+            minScore = Math.min(minScore, record.getScore());
+            maxScore = Math.max(maxScore, record.getScore());
+            scoreSum += record.getScore();
+            firstTime = Math.min(firstTime, record.getTimestamp());
+            lastTime = Math.max(lastTime, record.getTimestamp());
+        }
+
+        void mergeInto(RecordStats stats) {
+            stats.merge(count, minScore, maxScore, scoreSum, firstTime, lastTime);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(count);
+            out.writeInt(minScore);
+            out.writeInt(maxScore);
+            out.writeLong(scoreSum);
+            out.writeLong(firstTime);
+            out.writeLong(lastTime);
+        }
+
+        static Totals readFrom(DataInputStream in) throws IOException {
+            Totals totals = new Totals();
+            totals.count = in.readLong();
+            totals.minScore = in.readInt();
+            totals.maxScore = in.readInt();
+            totals.scoreSum = in.readLong();
+            totals.firstTime = in.readLong();
+            totals.lastTime = in.readLong();
+            return totals;
+        }
+    }
+
+    /**
+     * 清单里的一段
+     */
+    public static final class Segment {
+        private final int id;
+        private final long firstIndex;      // 第一条记录的全局下标
+        private int state;
+        private Totals totals = new Totals();
+        private TreeMap<Long, Totals> days = new TreeMap<>();
+
+        Segment(int id, long firstIndex) {
+            this.id = id;
+            this.firstIndex = firstIndex;
+            this.state = ACTIVE;
+        }
+
+        void add(GameRecord record) {
+            totals.add(record);
+            days.computeIfAbsent(dayOf(record.getTimestamp()), d -> new Totals()).add(record);
+        }
+
+        /**
+         * 清空汇总（按数据文件重新统计时用）
+         */
+        void reset() {
+            totals = new Totals();
+            days = new TreeMap<>();
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public long getFirstIndex() {
+            return firstIndex;
+        }
+
+        public long getEndIndex() {
+            return firstIndex + totals.count;
+        }
+
+        public long getCount() {
+            return totals.count;
+        }
+
+        public int getState() {
+            return state;
+        }
+
+        void setState(int state) {
+            this.state = state;
+        }
+
+        public boolean hasData() {
+            return state != COMPACTED;
+        }
+
+        /**
+         * 段内最早一条记录的时间；空段返回 Long.MAX_VALUE
+         */
+        public long getFirstTime() {
+            return totals.firstTime;
+        }
+
+        public int getMaxScore() {
+            return totals.maxScore;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(id);
+            out.writeLong(firstIndex);
+            out.writeByte(state);
+            totals.writeTo(out);
+            out.writeInt(days.size());
+            for (Map.Entry<Long, Totals> entry : days.entrySet()) {
+                out.writeLong(entry.getKey());
+                entry.getValue().writeTo(out);
+            }
+        }
+
+        static Segment readFrom(DataInputStream in) throws IOException {
+            Segment segment = new Segment(in.readInt(), in.readLong());
+            segment.state = in.readUnsignedByte();
+            segment.totals = Totals.readFrom(in);
+            int dayCount = in.readInt();
+            for (int i = 0; i < dayCount; i++) {
+                long day = in.readLong();
+                segment.days.put(day, Totals.readFrom(in));
+            }
+            return segment;
+        }
+    }
+
+    public List<Segment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    void addSegment(Segment segment) {
+        segments.add(segment);
+    }
+
+    /**
+     * 最后一段，新记录都追加在这里
+     */
+    public Segment getActive() {
+        return segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    }
+
+    /**
+     * 封存当前段，开一个新段接着编号
+     */
+    Segment rotate() {
+        Segment active = getActive();
+        active.setState(SEALED);
+        Segment next = new Segment(active.getId() + 1, active.getEndIndex());
+        segments.add(next);
+        return next;
+    }
+
+    public boolean contains(Segment segment) {
+        return segments.contains(segment);
+    }
+
+    public long getTotalCount() {
+        Segment active = getActive();
+        return active == null ? 0 : active.getEndIndex();
+    }
+
+    /**
+     * 全部记录的汇总（包括已压缩的段）
+     */
+    public RecordStats getStats() {
+        RecordStats stats = new RecordStats();
+        for (Segment segment : segments) {
+            segment.totals.mergeInto(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * 某个日期范围内（含两端）的汇总，按天合并
+     */
+    public RecordStats getStats(LocalDate from, LocalDate to) {
+        RecordStats stats = new RecordStats();
+        long first = from.toEpochDay();
+        long last = to.toEpochDay();
+        for (Segment segment : segments) {
+            if (segment.getCount() == 0
+                    || dayOf(segment.totals.lastTime) < first || dayOf(segment.totals.firstTime) > last) {
+                continue;
+            }
+            for (Totals totals : segment.days.subMap(first, true, last, true).values()) {
+                totals.mergeInto(stats);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 需要压缩的段：保留最近 keepRaw 个已封存的段，更早的已封存段都要压缩
+     */
+    public List<Segment> getCompactionCandidates(int keepRaw) {
+        List<Segment> sealed = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.getState() == SEALED) {
+                sealed.add(segment);
+            }
+        }
+        return new ArrayList<>(sealed.subList(0, Math.max(0, sealed.size() - keepRaw)));
+    }
+
+    public int getCompactedCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            if (segment.getState() == COMPACTED) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static long dayOf(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(segments.size());
+        for (Segment segment : segments) {
+            segment.writeTo(out);
+        }
+    }
+
+    public static RecordManifest readFrom(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) {
+                throw new IOException("不是记录清单文件");
+            }
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("不支持的清单版本: " + version);
+        }
+        RecordManifest manifest = new RecordManifest();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            manifest.segments.add(Segment.readFrom(in));
+        }
+        return manifest;
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * 一段记录的汇总：局数、最低/最高分、总分和时间范围。
+ * 由记录清单（RecordManifest）里按段、按天的汇总合并而来，不读记录数据
+ */
+public class RecordStats {
+    private long count;
+    private int minScore = Integer.MAX_VALUE;
+    private int maxScore = Integer.MIN_VALUE;
+    private long scoreSum;
+    private long firstTime = Long.MAX_VALUE;
+    private long lastTime = Long.MIN_VALUE;
+
+    /**
+     * 并入另一组汇总
+     */
+    void merge(long count, int minScore, int maxScore, long scoreSum, long firstTime, long lastTime) {
+        if (count <= 0) {
+            return;
+        }
+        this.count += count;
+        this.minScore = Math.min(this.minScore, minScore);
+        this.maxScore = Math.max(this.maxScore, maxScore);
+        this.scoreSum += scoreSum;
+        this.firstTime = Math.min(this.firstTime, firstTime);
+        this.lastTime = Math.max(this.lastTime, lastTime);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public int getMinScore() {
+        return count > 0 ? minScore : 0;
+    }
+
+    public int getMaxScore() {
+        return count > 0 ? maxScore : 0;
+    }
+
+    public double getAverageScore() {
+        return count > 0 ? (double) scoreSum / count : 0;
+    }
+
+    /**
+     * 最早一局的时间戳（毫秒）
+     */
+    public long getFirstTime() {
+        return count > 0 ? firstTime : 0;
+    }
+
+    public long getLastTime() {
+        return count > 0 ? lastTime : 0;
+    }
+
+    @Override
+    public String toString() {
+        if (count == 0) {
+            return "暂无记录";
+        }
+        return String.format("局数: %d | 最高分: %d | 最低分: %d | 平均分: %.1f",
+                count, maxScore, minScore, getAverageScore());
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 从记录日志末尾往前分页读取：记录定长，边界直接由下标算出，
+ * 每页只用一次定位读取那一小段，与文件多大无关（不映射整个文件，几个 GB 的历史也能秒开）。
+ * 日志可以分成多个段文件，按全局下标连续往前翻，跨段时自动换文件；
+ * 打开时确定末尾位置，之后追加的记录不会出现在这个读取器里；末尾残缺的半条记录被忽略
+ */
+public class RecordTailReader implements Closeable {
+    private final int headerSize;
+    private final List<Part> parts = new ArrayList<>();   // 按下标从小到大
+    private long cursor;    // 下一页的结束下标（不含），即已读到的最旧一条的下标
+
+    /**
+     * 一个段文件，记录的全局下标从 firstIndex 开始
+     */
+    private static final class Part {
+        final FileChannel channel;
+        final long firstIndex;
+        final long count;
+
+        Part(FileChannel channel, long firstIndex, long count) {
+            this.channel = channel;
+            this.firstIndex = firstIndex;
+            this.count = count;
+        }
+    }
+
+    /**
+     * 单个日志文件，从最后一条记录开始往前读
+     */
+    public RecordTailReader(Path file, int headerSize) throws IOException {
+        this(file, headerSize, Long.MAX_VALUE);
+    }
+
+    /**
+     * 单个日志文件，从下标 before 之前的那条记录开始往前读
+     */
+    public RecordTailReader(Path file, int headerSize, long before) throws IOException {
+        this(List.of(file), new long[]{0}, headerSize, before);
+    }
+
+    /**
+     * 多个相邻的段文件（按顺序），firstIndexes[i] 是第 i 个文件第一条记录的全局下标；
+     * 读到第一个文件的开头就停，更早的段（例如已压缩的）不在读取范围内
+     */
+    public RecordTailReader(List<Path> files, long[] firstIndexes, int headerSize, long before) throws IOException {
+        this.headerSize = headerSize;
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                FileChannel channel = FileChannel.open(files.get(i), StandardOpenOption.READ);
+                long count = Math.max(0, (channel.size() - headerSize) / GameRecord.SIZE);
+                parts.add(new Part(channel, firstIndexes[i], count));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        long end = parts.isEmpty() ? 0 : parts.get(parts.size() - 1).firstIndex + parts.get(parts.size() - 1).count;
+        this.cursor = Math.max(getFirstIndex(), Math.min(before, end));
+    }
+
+    /**
+     * 往前读最多 count 条，新的在前；读到开头后返回空列表
+     */
+    public List<GameRecord> readPrevious(int count) throws IOException {
+        List<GameRecord> records = new ArrayList<>();
+        int partIndex = parts.size() - 1;
+        while (records.size() < count && cursor > getFirstIndex()) {
+            while (parts.get(partIndex).firstIndex >= cursor) {
+                partIndex--;
+            }
+            Part part = parts.get(partIndex);
+            // 段文件比清单里记的短时（末尾残缺）跳过缺的那部分
+            long partEnd = Math.min(cursor, part.firstIndex + part.count);
+            int n = (int) Math.min(count - records.size(), partEnd - part.firstIndex);
+            if (n > 0) {
+                readPage(part, partEnd - n - part.firstIndex, n, records);
+            }
+            cursor = partEnd - n;
+            if (n == 0) {
+                cursor = part.firstIndex;
+            }
+        }
+        return records;
+    }
+
+    private void readPage(Part part, long localStart, int n, List<GameRecord> out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(n * GameRecord.SIZE);
+        long position = headerSize + localStart * GameRecord.SIZE;
+        while (buffer.hasRemaining()) {
+            int read = part.channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("记录文件被截断");
+            }
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            out.add(GameRecord.readFrom(buffer, i * GameRecord.SIZE));
+        }
+    }
+
+    private long getFirstIndex() {
+        return parts.isEmpty() ? 0 : parts.get(0).firstIndex;
+    }
+
+    public boolean hasMore() {
+        return cursor > getFirstIndex();
+    }
+
+    /**
+     * 已读到的最旧一条记录的下标；传给构造函数可以接着往前翻
+     */
+    public long getPosition() {
+        return cursor;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Part part : parts) {
+            part.channel.close();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 后台记录写入线程：调用方只把记录放进有界队列，写入线程一次取走队列里积攒的全部记录，
+ * 作为一批交给 Sink（一次写入、可选一次 fsync），这就是组提交。
+ * 队列满时提交方阻塞等待，不会无限占内存。
+ *
+ * 写入在 lock 上同步进行；flush() 在同一个 lock 上 wait，持有 lock 的调用方也可以安全地等待
+ * （wait 会暂时释放它）。close() 写完队列里剩下的记录再返回，配合关闭钩子保证退出时不丢记录
+ */
+public class RecordWriter {
+    public static final int DEFAULT_CAPACITY = 4096;
+    private static final int MAX_BATCH = 1024;
+    // 放进队列通知写入线程退出（不用 interrupt，免得打断正在写的 FileChannel）
+    private static final GameRecord STOP = new GameRecord(0, 0, 0, 0, 0, 0);
+
+    /**
+     * 一批记录的落盘方式
+     */
+    public interface Sink {
+        void write(List<GameRecord> batch, boolean sync) throws IOException;
+    }
+
+    private final Sink sink;
+    private final Object lock;
+    private final BlockingQueue<GameRecord> queue;
+    private final Thread thread;
+    private volatile boolean sync;
+    private volatile boolean closed = false;
+
+    // 以下计数都在 lock 上读写
+    private long submitted = 0;
+    private long written = 0;
+    private long batches = 0;
+    private long failed = 0;
+
+    public RecordWriter(Sink sink, Object lock, int capacity, boolean sync) {
+        this.sink = sink;
+        this.lock = lock;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.sync = sync;
+        this.thread = new Thread(this::run, "record-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 提交一条记录；队列满时阻塞。关闭之后提交的记录直接同步写入
+     */
+    public void submit(GameRecord record) {
+        synchronized (lock) {
+            submitted++;
+        }
+        if (closed) {
+            writeBatch(List.of(record));
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(record);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (closed) {
+            // 和 close() 撞上时，写入线程可能已经退出，自己把剩下的写掉
+            drainRemaining();
+        }
+    }
+
+    private void run() {
+        List<GameRecord> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            boolean stop = batch.remove(STOP);
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    private void drainRemaining() {
+        List<GameRecord> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.remove(STOP);
+        if (!rest.isEmpty()) {
+            writeBatch(rest);
+        }
+    }
+
+    private void writeBatch(List<GameRecord> batch) {
+        synchronized (lock) {
+            try {
+                sink.write(batch, sync);
+                batches++;
+            } catch (IOException e) {
+                failed += batch.size();
+                System.err.println("保存游戏记录失败（" + batch.size() + " 条）: " + e.getMessage());
+            }
+            written += batch.size();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 等到此前提交的记录都写完（失败的也算处理过）
+     */
+    public void flush() {
+        if (Thread.currentThread() == thread) {
+            // Sink 里又调到了需要 flush 的方法，当前批次本来就在写
+            return;
+        }
+        synchronized (lock) {
+            long target = submitted;
+            boolean interrupted = false;
+            while (written < target) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 停止接收排队，写完剩下的记录后返回
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(STOP);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainRemaining();
+    }
+
+    /**
+     * 每批写完是否 fsync（默认开启；批量模拟可以关掉换吞吐）
+     */
+    public void setSync(boolean sync) {
+        this.sync = sync;
+    }
+
+    public long getWrittenCount() {
+        synchronized (lock) {
+            return written;
+        }
+    }
+
+    public long getBatchCount() {
+        synchronized (lock) {
+            return batches;
+        }
+    }
+
+    public long getFailedCount() {
+        synchronized (lock) {
+            return failed;
+        }
+    }
+}
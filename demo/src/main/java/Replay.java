@@ -0,0 +1,264 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * 一局游戏的回放：种子 + 按tick编号排列的输入/刷新事件流。
+ *
+ * 文件格式（.snkr）：
+ *   "SNKR" | 版本(1字节) | 种子(8字节) | 宽 | 高 | tick周期毫秒 | 事件... | 结束事件 | 最终分数 | 最终长度
+ *   | 关键帧数据... | 关键帧索引 | 索引起始偏移(8字节)
+ * 除种子和偏移外的整数都是无符号变长编码（每字节7位）。
+ * 每个事件编码为 (距上个事件的tick差 << 3) | 事件码，转向事件一般只占1个字节。
+ * 关键帧索引：个数，然后每项为 tick、此前的事件数、数据偏移、数据长度（见 Keyframe）
+ */
+public class Replay {
+    public static final String EXTENSION = ".snkr";
+
+    static final byte[] MAGIC = {'S', 'N', 'K', 'R'};
+    static final int VERSION = 1;
+
+    // 事件码：0~3 为 Direction 序号
+    public static final int EVENT_FOOD_REFRESH = 4;
+    public static final int EVENT_MAP_PREGENERATE = 5;
+    public static final int EVENT_MAP_SWAP = 6;
+    static final int EVENT_END = 7;
+
+    private final long seed;
+    private final int width;
+    private final int height;
+    private final long tickPeriodMillis;
+    private final long[] eventTicks;
+    private final byte[] eventCodes;
+    private final long finalTick;
+    private final int finalScore;
+    private final int finalLength;
+
+    // 关键帧索引，数据按需从原始字节里切出
+    private final byte[] data;
+    private final long[] keyframeTicks;
+    private final int[] keyframeEventIndex;
+    private final int[] keyframeOffsets;
+    private final int[] keyframeLengths;
+
+    Replay(long seed, int width, int height, long tickPeriodMillis,
+           long[] eventTicks, byte[] eventCodes,
+           long finalTick, int finalScore, int finalLength,
+           byte[] data, long[] keyframeTicks, int[] keyframeEventIndex,
+           int[] keyframeOffsets, int[] keyframeLengths) {
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        this.tickPeriodMillis = tickPeriodMillis;
+        this.eventTicks = eventTicks;
+        this.eventCodes = eventCodes;
+        this.finalTick = finalTick;
+        this.finalScore = finalScore;
+        this.finalLength = finalLength;
+        this.data = data;
+        this.keyframeTicks = keyframeTicks;
+        this.keyframeEventIndex = keyframeEventIndex;
+        this.keyframeOffsets = keyframeOffsets;
+        this.keyframeLengths = keyframeLengths;
+    }
+
+    public static Replay load(File file) throws IOException {
+        return parse(Files.readAllBytes(file.toPath()));
+    }
+
+    public static Replay parse(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("不是回放文件");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("不支持的回放版本: " + version);
+        }
+        long seed = in.readLong();
+        int width = (int) readVarLong(in);
+        int height = (int) readVarLong(in);
+        long tickPeriodMillis = readVarLong(in);
+
+        long[] ticks = new long[64];
+        byte[] codes = new byte[64];
+        int count = 0;
+        long tick = 0;
+        while (true) {
+            long token = readVarLong(in);
+            tick += token >>> 3;
+            int code = (int) (token & 7);
+            if (code == EVENT_END) {
+                break;
+            }
+            if (count == ticks.length) {
+                ticks = Arrays.copyOf(ticks, count * 2);
+                codes = Arrays.copyOf(codes, count * 2);
+            }
+            ticks[count] = tick;
+            codes[count] = (byte) code;
+            count++;
+        }
+        int finalScore = (int) readVarLong(in);
+        int finalLength = (int) readVarLong(in);
+
+        // 索引在文件末尾，起始偏移写在最后8个字节
+        if (data.length < 8) {
+            throw new IOException("回放文件不完整");
+        }
+        long indexOffset = 0;
+        for (int i = data.length - 8; i < data.length; i++) {
+            indexOffset = (indexOffset << 8) | (data[i] & 0xFF);
+        }
+        if (indexOffset < 0 || indexOffset > data.length - 8) {
+            throw new IOException("关键帧索引损坏");
+        }
+        InputStream index = new ByteArrayInputStream(data, (int) indexOffset,
+                data.length - 8 - (int) indexOffset);
+        int keyframes = (int) readVarLong(index);
+        long[] keyframeTicks = new long[keyframes];
+        int[] keyframeEventIndex = new int[keyframes];
+        int[] keyframeOffsets = new int[keyframes];
+        int[] keyframeLengths = new int[keyframes];
+        for (int i = 0; i < keyframes; i++) {
+            keyframeTicks[i] = readVarLong(index);
+            keyframeEventIndex[i] = (int) readVarLong(index);
+            keyframeOffsets[i] = (int) readVarLong(index);
+            keyframeLengths[i] = (int) readVarLong(index);
+            if (keyframeEventIndex[i] > count
+                    || keyframeOffsets[i] + keyframeLengths[i] > indexOffset) {
+                throw new IOException("关键帧索引损坏");
+            }
+        }
+
+        return new Replay(seed, width, height, tickPeriodMillis,
+                Arrays.copyOf(ticks, count), Arrays.copyOf(codes, count),
+                tick, finalScore, finalLength,
+                data, keyframeTicks, keyframeEventIndex, keyframeOffsets, keyframeLengths);
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("回放文件不完整");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    static void writeHeader(ByteArrayOutputStream out, long seed, int width, int height,
+                            long tickPeriodMillis) {
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(VERSION);
+        writeLong(out, seed);
+        writeVarLong(out, width);
+        writeVarLong(out, height);
+        writeVarLong(out, tickPeriodMillis);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getTickPeriodMillis() {
+        return tickPeriodMillis;
+    }
+
+    public int getEventCount() {
+        return eventTicks.length;
+    }
+
+    public long getEventTick(int i) {
+        return eventTicks[i];
+    }
+
+    public int getEventCode(int i) {
+        return eventCodes[i];
+    }
+
+    public long getFinalTick() {
+        return finalTick;
+    }
+
+    public int getFinalScore() {
+        return finalScore;
+    }
+
+    public int getFinalLength() {
+        return finalLength;
+    }
+
+    public int getKeyframeCount() {
+        return keyframeTicks.length;
+    }
+
+    public long getKeyframeTick(int i) {
+        return keyframeTicks[i];
+    }
+
+    /**
+     * 第 i 个关键帧之前已发生的事件数，恢复后从这个事件继续重放
+     */
+    public int getKeyframeEventIndex(int i) {
+        return keyframeEventIndex[i];
+    }
+
+    public byte[] getKeyframeData(int i) {
+        return Arrays.copyOfRange(data, keyframeOffsets[i], keyframeOffsets[i] + keyframeLengths[i]);
+    }
+
+    /**
+     * 不晚于 tick 的最后一个关键帧；没有时返回-1
+     */
+    public int findKeyframe(long tick) {
+        int lo = 0;
+        int hi = keyframeTicks.length - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keyframeTicks[mid] <= tick) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+}
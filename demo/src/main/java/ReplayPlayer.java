@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 回放引擎：用回放里的种子重建一局，按记录的tick重放转向和刷新事件。
+ * 使用虚拟时钟，可以逐tick播放；跳转时先恢复最近的关键帧，再模拟剩下的几个tick
+ */
+public class ReplayPlayer {
+    private final Replay replay;
+
+    private WorldManager worldManager;
+    private ScoreManager scoreManager;
+    private RuleEngine ruleEngine;
+    private GameLoop gameLoop;
+    private VirtualClock clock;
+    private int nextEvent;
+
+    public ReplayPlayer(Replay replay) {
+        this.replay = replay;
+        reset();
+    }
+
+    /**
+     * 回到第0个tick
+     */
+    public void reset() {
+        build(true);
+        nextEvent = 0;
+    }
+
+    private void build(boolean initialize) {
+        worldManager = new WorldManager(replay.getWidth(), replay.getHeight(), replay.getSeed());
+        worldManager.setVerbose(false);
+        if (initialize) {
+            worldManager.initializeGame();
+        }
+
+        scoreManager = new ScoreManager();
+        scoreManager.setVerbose(false);
+        ruleEngine = new RuleEngine();
+        clock = new VirtualClock();
+
+        gameLoop = new GameLoop(worldManager.getWorld(), ruleEngine, scoreManager,
+                worldManager.getFoodSpawner(), worldManager.getObstacleGenerator(), clock);
+        gameLoop.setVerbose(false);
+        gameLoop.setPregenerationExecutor(Runnable::run);
+        gameLoop.setScriptedRefresh(true);
+        gameLoop.start();
+    }
+
+    /**
+     * 恢复第 i 个关键帧
+     */
+    private void restoreKeyframe(int i) {
+        build(false);
+        clock.advance(replay.getKeyframeTick(i) * replay.getTickPeriodMillis() * 1_000_000L);
+        try {
+            Keyframe.restore(replay.getKeyframeData(i), gameLoop);
+        } catch (IOException e) {
+            throw new UncheckedIOException("关键帧损坏", e);
+        }
+        nextEvent = replay.getKeyframeEventIndex(i);
+    }
+
+    /**
+     * 播放一个tick
+     * @return 还有后续tick时返回true
+     */
+    public boolean step() {
+        if (isFinished()) {
+            return false;
+        }
+
+        long tick = gameLoop.getTickCount();
+        Snake snake = worldManager.getWorld().getSnake();
+        while (nextEvent < replay.getEventCount() && replay.getEventTick(nextEvent) == tick) {
+            int code = replay.getEventCode(nextEvent++);
+            if (code < Direction.values().length) {
+                snake.changeDirection(Direction.values()[code]);
+            } else {
+                gameLoop.scheduleScriptedEvent(code);
+            }
+        }
+
+        gameLoop.tick();
+        clock.advance(replay.getTickPeriodMillis() * 1_000_000L);
+        return !isFinished();
+    }
+
+    /**
+     * 跳到指定tick：目标之前最近的关键帧比当前位置更近（或需要往回跳）时先恢复关键帧，
+     * 代价只与到该关键帧的距离有关
+     */
+    public void seek(long tick) {
+        tick = Math.max(0, Math.min(tick, replay.getFinalTick()));
+        long current = gameLoop.getTickCount();
+        int keyframe = replay.findKeyframe(tick);
+        long keyframeTick = keyframe >= 0 ? replay.getKeyframeTick(keyframe) : 0;
+        if (tick < current || keyframeTick > current) {
+            if (keyframe >= 0) {
+                restoreKeyframe(keyframe);
+            } else {
+                reset();
+            }
+        }
+        // 中间的tick没人看，跳完再发布一个快照
+        gameLoop.setSnapshotPublishing(false);
+        while (gameLoop.getTickCount() < tick && step()) {
+            // 继续推进
+        }
+        gameLoop.setSnapshotPublishing(true);
+    }
+
+    public void playToEnd() {
+        while (step()) {
+            // 继续推进
+        }
+    }
+
+    public boolean isFinished() {
+        return ruleEngine.isGameOver() || gameLoop.getTickCount() >= replay.getFinalTick();
+    }
+
+    public long getCurrentTick() {
+        return gameLoop.getTickCount();
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    public World getWorld() {
+        return worldManager.getWorld();
+    }
+
+    public ScoreManager getScoreManager() {
+        return scoreManager;
+    }
+
+    public RuleEngine getRuleEngine() {
+        return ruleEngine;
+    }
+
+    public GameLoop getGameLoop() {
+        return gameLoop;
+    }
+}
@@ -0,0 +1,142 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 录制回放：GameLoop 每个tick报告当前方向，只有方向真正改变时才写一个事件；
+ * 刷新食物/地图的时刻也按tick记下，回放时照此触发，保证逐tick重现。
+ * 每隔一段tick另存一个关键帧（候选地图生成中时顺延），回放拖动时不必从头模拟
+ */
+public class ReplayRecorder {
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 120;
+    private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private final long seed;
+    private final int width;
+    private final int height;
+    private final long tickPeriodMillis;
+
+    private final ByteArrayOutputStream events = new ByteArrayOutputStream(256);
+    private long lastEventTick = 0;
+    private int eventCount = 0;
+    private Direction lastDirection = null;
+    private long finalTick = -1;
+    private int finalScore;
+    private int finalLength;
+
+    private final ByteArrayOutputStream keyframes = new ByteArrayOutputStream();
+    private final List<long[]> keyframeIndex = new ArrayList<>(); // {tick, 事件数, 偏移, 长度}
+    private int keyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+    private long nextKeyframeTick = DEFAULT_KEYFRAME_INTERVAL;
+
+    public ReplayRecorder(long seed, int width, int height, long tickPeriodMillis) {
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        this.tickPeriodMillis = tickPeriodMillis;
+    }
+
+    /**
+     * 每隔多少tick存一个关键帧；0 表示不存
+     */
+    public synchronized void setKeyframeInterval(int keyframeInterval) {
+        this.keyframeInterval = keyframeInterval;
+        this.nextKeyframeTick = keyframeInterval > 0 ? keyframeInterval : Long.MAX_VALUE;
+    }
+
+    /**
+     * 第 tick 个tick移动前蛇的方向
+     */
+    public synchronized void onTick(long tick, Direction direction) {
+        if (direction != lastDirection) {
+            writeEvent(tick, direction.ordinal());
+            lastDirection = direction;
+        }
+    }
+
+    /**
+     * 第 tick 个tick内发生的刷新事件（见 Replay.EVENT_*）
+     */
+    public synchronized void onEvent(long tick, int code) {
+        writeEvent(tick, code);
+    }
+
+    private void writeEvent(long tick, int code) {
+        Replay.writeVarLong(events, ((tick - lastEventTick) << 3) | code);
+        lastEventTick = tick;
+        eventCount++;
+    }
+
+    /**
+     * 每个tick结束后调用，到期时保存关键帧
+     */
+    public synchronized void afterTick(GameLoop loop) {
+        long tick = loop.getTickCount();
+        if (tick < nextKeyframeTick || loop.isPregenerationPending()) {
+            return;
+        }
+        byte[] frame = Keyframe.capture(loop);
+        if (frame == null) {
+            nextKeyframeTick = Long.MAX_VALUE;
+            return;
+        }
+        keyframeIndex.add(new long[]{tick, eventCount, keyframes.size(), frame.length});
+        keyframes.write(frame, 0, frame.length);
+        nextKeyframeTick = tick + keyframeInterval;
+    }
+
+    /**
+     * 游戏结束时调用，记下总tick数和最终结果（回放时用来校验）
+     */
+    public synchronized void finish(long totalTicks, int score, int length) {
+        finalTick = totalTicks;
+        finalScore = score;
+        finalLength = length;
+    }
+
+    public synchronized byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(events.size() + 32);
+        Replay.writeHeader(out, seed, width, height, tickPeriodMillis);
+        out.write(events.toByteArray(), 0, events.size());
+        long end = Math.max(finalTick, lastEventTick);
+        Replay.writeVarLong(out, ((end - lastEventTick) << 3) | Replay.EVENT_END);
+        Replay.writeVarLong(out, finalScore);
+        Replay.writeVarLong(out, finalLength);
+
+        int base = out.size();
+        out.write(keyframes.toByteArray(), 0, keyframes.size());
+        long indexOffset = out.size();
+        Replay.writeVarLong(out, keyframeIndex.size());
+        for (long[] entry : keyframeIndex) {
+            Replay.writeVarLong(out, entry[0]);
+            Replay.writeVarLong(out, entry[1]);
+            Replay.writeVarLong(out, base + entry[2]);
+            Replay.writeVarLong(out, entry[3]);
+        }
+        Replay.writeLong(out, indexOffset);
+        return out.toByteArray();
+    }
+
+    public void save(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        Files.write(file.toPath(), toBytes());
+    }
+
+    /**
+     * 按当前时间命名保存到目录下，如 replays/replay_20240101_120000.snkr
+     */
+    public File saveToDirectory(String directory) throws IOException {
+        String name = "replay_" + FILE_NAME_FORMAT.format(LocalDateTime.now()) + Replay.EXTENSION;
+        File file = new File(directory, name);
+        save(file);
+        return file;
+    }
+}
@@ -4,73 +4,99 @@ public class RuleEngine {
     private boolean gameOver = false;
     private String gameOverReason = "";
     
-    public void checkCollision(GameLoop gameLoop) {
-        if (gameOver) return;
+    /**
+     * 对蛇头格子做一次分类，同时处理碰撞和吃食物，耗时与蛇长无关
+     */
+    public RuleResult evaluate(GameLoop gameLoop) {
+        RuleResult result = new RuleResult();
+        if (gameOver) {
+            result.gameOver = true;
+            result.gameOverReason = gameOverReason;
+            return result;
+        }
         
         World world = gameLoop.getWorld();
         Snake snake = world.getSnake();
+        CellType cell = world.classifyHead(snake);
+        result.headCell = cell;
         
-        Point head = snake.getHead();
-        
-        // 1. 检查边界碰撞
-        if (!world.inBounds(head)) {
-            gameOver = true;
-            gameOverReason = "撞墙了!";
-            return;
-        }
-        
-        // 2. 检查自身碰撞（跳过头部）
-        boolean selfCollision = false;
-        boolean first = true;
-        for (Point bodyPart : snake.getBody()) {
-            if (first) {
-                first = false;
-                continue; // 跳过头部
-            }
-            if (bodyPart.equals(head)) {
-                selfCollision = true;
+        switch (cell) {
+            case OUT_OF_BOUNDS:
+                endGame(result, "撞墙了!");
+                break;
+            case SNAKE_BODY:
+                endGame(result, "撞到自己了!");
+                break;
+            case OBSTACLE:
+                endGame(result, "撞到障碍物了!");
+                break;
+            case FOOD:
+                eat(gameLoop, result);
+                break;
+            default:
                 break;
-            }
         }
+        return result;
+    }
+    
+    private void endGame(RuleResult result, String reason) {
+        gameOver = true;
+        gameOverReason = reason;
+        result.gameOver = true;
+        result.gameOverReason = reason;
+    }
+    
+    private void eat(GameLoop gameLoop, RuleResult result) {
+        World world = gameLoop.getWorld();
+        Snake snake = world.getSnake();
+        ScoreManager scoreManager = gameLoop.getScoreManager();
         
-        if (selfCollision) {
-            gameOver = true;
-            gameOverReason = "撞到自己了!";
+        Point head = snake.getHead();
+        Food foodEaten = world.getFoodAt(head);
+        if (foodEaten == null) {
             return;
         }
+        FoodType type = foodEaten.getType();
         
-        // 3. 检查障碍物碰撞
-        Obstacles obstacles = world.getObstacles();
-        if (obstacles != null && obstacles.getAllCells().contains(head)) {
-            gameOver = true;
-            gameOverReason = "撞到障碍物了!";
-            return;
-        }
+        // 计算分数（ScoreManager内部处理连续逻辑）
+        int before = scoreManager.getScore();
+        scoreManager.eatFood(type);
+        
+        // 蛇增长
+        snake.grow(type.getGrowth());
+        
+        // 移除被吃掉的这个食物（其他食物保留）
+        world.removeFoodAt(head);
+        
+        result.ateFood = true;
+        result.foodType = type;
+        result.scoreDelta = scoreManager.getScore() - before;
+        result.needNewFood = world.getFoods().isEmpty();
     }
     
-    public void checkFood(GameLoop gameLoop) {
+    public void checkCollision(GameLoop gameLoop) {
         if (gameOver) return;
         
         World world = gameLoop.getWorld();
-        Snake snake = world.getSnake();
-        ScoreManager scoreManager = gameLoop.getScoreManager();
-        
-        Point head = snake.getHead();
+        switch (world.classifyHead(world.getSnake())) {
+            case OUT_OF_BOUNDS:
+                endGame(new RuleResult(), "撞墙了!");
+                break;
+            case SNAKE_BODY:
+                endGame(new RuleResult(), "撞到自己了!");
+                break;
+            case OBSTACLE:
+                endGame(new RuleResult(), "撞到障碍物了!");
+                break;
+            default:
+                break;
+        }
+    }
+    
+    public void checkFood(GameLoop gameLoop) {
+        if (gameOver) return;
         
-        // 检查是否吃到任何食物
-        Food foodEaten = world.getFoodAt(head);
-        if (foodEaten != null) {
-            FoodType type = foodEaten.getType();
-            
-            // 计算分数（ScoreManager内部处理连续逻辑）
-            scoreManager.eatFood(type);
-            
-            // 蛇增长
-            snake.grow(type.getGrowth());
-            
-            // 移除被吃掉的这个食物（其他食物保留）
-            world.removeFoodAt(head);
-        } 
+        eat(gameLoop, new RuleResult());
     }
     
     public boolean isGameOver() {
@@ -85,4 +111,4 @@ public class RuleEngine {
         gameOver = false;
         gameOverReason = "";
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,11 @@
 public class RuleResult {
     public boolean gameOver = false;
+    public String gameOverReason = "";
+    public CellType headCell = CellType.EMPTY;
     public boolean ateFood = false;
+    public FoodType foodType = null;
     public int scoreDelta = 0;
     public boolean needNewFood = false;
     public boolean needNewObstacles = false;
+    public WorldChanges changes = null;   // 本tick的世界变化日志（GameLoop 填写）
 }
-
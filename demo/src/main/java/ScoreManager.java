@@ -4,6 +4,7 @@ public class ScoreManager {
     // 记录连续吃相同类型食物的次数
     private FoodType lastFoodType = null;
     private int consecutiveCount = 0;
+    private boolean verbose = true;
 
     public void eatFood(FoodType type) {
         // 如果吃的食物类型和上次不同，重置连续计数
@@ -36,10 +37,12 @@ public class ScoreManager {
         }
         
         // 输出调试信息
-        System.out.println("吃了" + type + "食物，连续" + consecutiveCount + "个，本次得分：" + 
-            (type == FoodType.NORMAL ? 1 : 
-             type == FoodType.SPECIAL ? consecutiveCount * consecutiveCount : 
-             consecutiveCount * consecutiveCount * consecutiveCount));
+        if (verbose) {
+            System.out.println("吃了" + type + "食物，连续" + consecutiveCount + "个，本次得分：" + 
+                (type == FoodType.NORMAL ? 1 : 
+                 type == FoodType.SPECIAL ? consecutiveCount * consecutiveCount : 
+                 consecutiveCount * consecutiveCount * consecutiveCount));
+        }
     }
 
     public void resetCombo() {
@@ -48,7 +51,31 @@ public class ScoreManager {
         consecutiveCount = 0;
     }
 
+    /**
+     * 关闭控制台输出（批量模拟用）
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
     public int getScore() {
         return score;
     }
+
+    public FoodType getLastFoodType() {
+        return lastFoodType;
+    }
+
+    public int getConsecutiveCount() {
+        return consecutiveCount;
+    }
+
+    /**
+     * 恢复分数和连击状态（回放关键帧用）
+     */
+    public void restore(int score, FoodType lastFoodType, int consecutiveCount) {
+        this.score = score;
+        this.lastFoodType = lastFoodType;
+        this.consecutiveCount = consecutiveCount;
+    }
 }
\ No newline at end of file
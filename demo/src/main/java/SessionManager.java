@@ -0,0 +1,279 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * 多局游戏共用的tick调度器：一个计时线程按固定分辨率转动 TimingWheel，到期的会话交给一个小的工作线程池执行。
+ * 线程数固定为 1 + workers，与会话数无关；每个会话有自己的tick周期，按绝对时间表调度不漂移。
+ * 背压：会话上一个tick还没执行完时，这次到期直接跳过并计数，不会在队列里越积越多
+ */
+public class SessionManager {
+    private final GameClock clock;
+    private final long resolutionNanos;      // 时间轮每格的时长
+    private final TimingWheel wheel = new TimingWheel(0);
+    private final ExecutorService workers;
+
+    // 其他线程注册的会话先进队列，由计时线程放进时间轮（时间轮只有计时线程访问）
+    private final ConcurrentLinkedQueue<Session> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final LongAdder totalTicks = new LongAdder();
+    private final LongAdder totalSkipped = new LongAdder();
+
+    private final Thread timer;
+    private volatile boolean running = true;
+    private final long startNanos;
+    private long dueTick = 0;               // 按真实时间这一轮应该推进到的格子
+
+    /**
+     * 一个被调度的会话
+     */
+    public class Session {
+        private final BooleanSupplier step;   // 返回false时会话结束
+        private final long periodNanos;
+        private final long periodTicks;       // 对齐到时间轮格数的周期
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private TimingWheel.Timer timer;      // 只有计时线程访问
+        private volatile long ticks = 0;
+        private volatile long skippedTicks = 0;
+
+        private Session(BooleanSupplier step, long periodNanos) {
+            this.step = step;
+            this.periodNanos = periodNanos;
+            this.periodTicks = Math.max(1, ceilDiv(periodNanos, resolutionNanos));
+        }
+
+        /**
+         * 时间轮到期回调：落后超过一个周期时这次直接跳过，不补跑
+         */
+        private void expire() {
+            if (cancelled.get()) {
+                wheel.cancel(timer);
+                return;
+            }
+            if (wheel.getCurrentTick() + periodTicks <= dueTick) {
+                skippedTicks++;
+                totalSkipped.increment();
+                return;
+            }
+            fire();
+        }
+
+        private void fire() {
+            if (!inFlight.compareAndSet(false, true)) {
+                skippedTicks++;
+                totalSkipped.increment();
+                return;
+            }
+            workers.execute(this::runStep);
+        }
+
+        private void runStep() {
+            try {
+                if (!cancelled.get() && !step.getAsBoolean()) {
+                    cancel();
+                }
+                ticks++;
+                totalTicks.increment();
+            } catch (RuntimeException e) {
+                cancel();
+                e.printStackTrace();
+            } finally {
+                inFlight.set(false);
+            }
+        }
+
+        /**
+         * 停止调度（正在执行的tick会执行完）
+         */
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                activeSessions.decrementAndGet();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        public long getTicks() {
+            return ticks;
+        }
+
+        /**
+         * 因上一个tick未完成而跳过的次数
+         */
+        public long getSkippedTicks() {
+            return skippedTicks;
+        }
+
+        public long getPeriodMillis() {
+            return periodNanos / 1_000_000L;
+        }
+    }
+
+    public SessionManager(int workerThreads) {
+        this(GameClock.SYSTEM, workerThreads, 10);
+    }
+
+    /**
+     * @param resolutionMillis 时间轮每格时长，tick周期向上对齐到它的整数倍
+     */
+    public SessionManager(GameClock clock, int workerThreads, long resolutionMillis) {
+        this.clock = clock;
+        this.resolutionNanos = resolutionMillis * 1_000_000L;
+
+        AtomicInteger workerId = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread t = new Thread(r, "session-worker-" + workerId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.startNanos = clock.nanoTime();
+        this.timer = new Thread(this::runTimer, "session-timer");
+        this.timer.setDaemon(true);
+        this.timer.start();
+    }
+
+    /**
+     * 按 periodMillis 驱动一个游戏循环，执行 GameLoop 的默认动作（暂停时空转，游戏结束后停止）
+     */
+    public Session register(GameLoop loop, long periodMillis) {
+        return register(loop, periodMillis, null);
+    }
+
+    /**
+     * @param step 每个tick执行的动作，返回false结束会话；为null时执行 GameLoop 的默认动作
+     */
+    public Session register(GameLoop loop, long periodMillis, BooleanSupplier step) {
+        loop.setTickPeriodMillis(periodMillis);
+        return schedule(periodMillis, step != null ? step : loop::defaultStep);
+    }
+
+    /**
+     * 按 periodMillis 周期执行任意动作（第一次在下一格执行）
+     */
+    public Session schedule(long periodMillis, BooleanSupplier step) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("tick周期必须为正数");
+        }
+        if (!running) {
+            throw new IllegalStateException("调度器已关闭");
+        }
+        Session session = new Session(step, periodMillis * 1_000_000L);
+        activeSessions.incrementAndGet();
+        pending.add(session);
+        return session;
+    }
+
+    private void runTimer() {
+        while (running) {
+            long elapsed = clock.nanoTime() - startNanos;
+            long due = elapsed / resolutionNanos;
+            if (due <= wheel.getCurrentTick()) {
+                LockSupport.parkNanos(this, (wheel.getCurrentTick() + 1) * resolutionNanos - elapsed);
+                continue;
+            }
+            dueTick = due;
+            transferPending();
+            wheel.advanceTo(due);
+        }
+    }
+
+    /**
+     * 其他线程注册的会话放进时间轮，第一次在本轮要推进到的格子执行
+     */
+    private void transferPending() {
+        Session session;
+        while ((session = pending.poll()) != null) {
+            if (!session.cancelled.get()) {
+                session.timer = wheel.scheduleRepeating(dueTick - wheel.getCurrentTick(),
+                        session.periodTicks, session::expire);
+            }
+        }
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    /**
+     * 停止计时线程和工作线程（不等待正在执行的tick）
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(timer);
+        workers.shutdown();
+    }
+
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        timer.join(timeoutMillis);
+        return workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS) && !timer.isAlive();
+    }
+
+    public int getActiveSessionCount() {
+        return activeSessions.get();
+    }
+
+    public long getTotalTicks() {
+        return totalTicks.sum();
+    }
+
+    public long getTotalSkippedTicks() {
+        return totalSkipped.sum();
+    }
+
+    /**
+     * 压力测试：同时跑很多局无头游戏（贪心策略），统计实际tick速率和跳过次数
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int workerThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long periodMillis = 250; // 每秒4个tick
+
+        SessionManager manager = new SessionManager(workerThreads);
+        for (int i = 0; i < sessions; i++) {
+            WorldManager worldManager = new WorldManager(20, 15, GameRandom.seedFor(20240101L, i));
+            worldManager.setVerbose(false);
+            worldManager.initializeGame();
+            World world = worldManager.getWorld();
+            ScoreManager scoreManager = new ScoreManager();
+            scoreManager.setVerbose(false);
+            RuleEngine ruleEngine = new RuleEngine();
+
+            GameLoop loop = new GameLoop(world, ruleEngine, scoreManager, worldManager.getFoodSpawner(),
+                    worldManager.getObstacleGenerator(), GameClock.SYSTEM);
+            loop.setVerbose(false);
+            loop.setSnapshotPublishing(false);
+            loop.start();
+
+            DirectionPolicy policy = DirectionPolicy.greedyFood();
+            RandomGenerator random = worldManager.newRandomStream();
+            manager.register(loop, periodMillis, () -> {
+                world.getSnake().changeDirection(policy.choose(world, world.getSnake(), random));
+                loop.tick();
+                return !ruleEngine.isGameOver();
+            });
+        }
+
+        Thread.sleep(seconds * 1000L);
+        long ticks = manager.getTotalTicks();
+        long skipped = manager.getTotalSkippedTicks();
+        int active = manager.getActiveSessionCount();
+        manager.shutdown();
+
+        System.out.println("========== 会话调度压力测试 ==========");
+        System.out.printf("会话: %d，工作线程: %d，运行: %d 秒%n", sessions, workerThreads, seconds);
+        System.out.printf("执行tick: %d（%.0f/秒），跳过: %d，结束时仍在运行的会话: %d%n",
+                ticks, ticks / (double) seconds, skipped, active);
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 批量模拟的汇总统计；可合并，便于并行归约
+ */
+public class SimulationStats {
+    private long games = 0;
+    private long totalScore = 0;
+    private int maxScore = Integer.MIN_VALUE;
+    private int minScore = Integer.MAX_VALUE;
+    private long totalLength = 0;
+    private int maxLength = 0;
+    private long totalTicks = 0;
+    private final Map<String, Long> deathReasons = new TreeMap<>();
+
+    public void record(int score, int length, long ticks, String reason) {
+        games++;
+        totalScore += score;
+        maxScore = Math.max(maxScore, score);
+        minScore = Math.min(minScore, score);
+        totalLength += length;
+        maxLength = Math.max(maxLength, length);
+        totalTicks += ticks;
+        deathReasons.merge(reason, 1L, Long::sum);
+    }
+
+    public SimulationStats merge(SimulationStats other) {
+        games += other.games;
+        totalScore += other.totalScore;
+        maxScore = Math.max(maxScore, other.maxScore);
+        minScore = Math.min(minScore, other.minScore);
+        totalLength += other.totalLength;
+        maxLength = Math.max(maxLength, other.maxLength);
+        totalTicks += other.totalTicks;
+        other.deathReasons.forEach((reason, count) -> deathReasons.merge(reason, count, Long::sum));
+        return this;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public double getAverageScore() {
+        return games == 0 ? 0 : (double) totalScore / games;
+    }
+
+    public int getMaxScore() {
+        return games == 0 ? 0 : maxScore;
+    }
+
+    public int getMinScore() {
+        return games == 0 ? 0 : minScore;
+    }
+
+    public double getAverageLength() {
+        return games == 0 ? 0 : (double) totalLength / games;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public double getAverageTicks() {
+        return games == 0 ? 0 : (double) totalTicks / games;
+    }
+
+    public Map<String, Long> getDeathReasons() {
+        return deathReasons;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("局数: %d | 平均分: %.2f | 最高分: %d | 最低分: %d%n",
+                games, getAverageScore(), getMaxScore(), getMinScore()));
+        sb.append(String.format("平均长度: %.2f | 最长: %d | 平均tick数: %.1f%n",
+                getAverageLength(), maxLength, getAverageTicks()));
+        sb.append("结束原因:");
+        deathReasons.forEach((reason, count) ->
+                sb.append(String.format("%n  %s %d (%.1f%%)", reason, count, 100.0 * count / games)));
+        return sb.toString();
+    }
+}
@@ -1,38 +1,133 @@
 import java.awt.Point;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
+/**
+ * 蛇身存放在打包成 int 的环形缓冲区里（头在前），
+ * 占用情况写进共享的 CellCounter，移动和查询都不分配对象
+ */
 public class Snake {
-    private Deque<Point> body;
+    private int[] ring;           // 打包的 (x, y)，见 pack()
+    private int headIndex;        // 蛇头在 ring 中的位置
+    private int length;
+    private final CellCounter cells;
+    private int outOfBounds;      // 越界的身体节数（一般只有撞墙那一刻的蛇头）
+
     private Direction currentDirection;
     private int growthPending;
+    private long moveCount;
+    private final InputQueue inputs = new InputQueue();   // 玩家输入，tick 时取出
     
-    public Snake(Point start, Direction dir, int initialLength) {
-        this.body = new ArrayDeque<>();
+    public Snake(Point start, Direction dir, int initialLength, CellCounter cells) {
+        this.cells = cells;
         this.currentDirection = dir;
         this.growthPending = 0;
+
+        int capacity = 16;
+        while (capacity < initialLength) {
+            capacity <<= 1;
+        }
+        this.ring = new int[capacity];
+        this.headIndex = 0;
+        this.length = 0;
         for (int i = 0; i < initialLength; i++) {
-            body.addLast(new Point(start.x - i * dir.dx, start.y - i * dir.dy));
+            int x = start.x - i * dir.dx;
+            int y = start.y - i * dir.dy;
+            ring[i] = pack(x, y);
+            length++;
+            occupy(x, y);
         }
     }
-    
-    private Point nextHead() {
-        Point head = body.peekFirst();
-        Point newHead = new Point(head);
-        
-        newHead.x += currentDirection.dx;
-        newHead.y += currentDirection.dy;
-        return newHead;
+
+    /**
+     * 按打包坐标（头在前）恢复一条蛇，回放关键帧用
+     */
+    Snake(int[] body, Direction dir, int growthPending, long moveCount, CellCounter cells) {
+        this.cells = cells;
+        this.currentDirection = dir;
+        this.growthPending = growthPending;
+        this.moveCount = moveCount;
+
+        int capacity = 16;
+        while (capacity < body.length) {
+            capacity <<= 1;
+        }
+        this.ring = new int[capacity];
+        this.headIndex = 0;
+        this.length = body.length;
+        for (int i = 0; i < body.length; i++) {
+            ring[i] = body[i];
+            occupy(unpackX(body[i]), unpackY(body[i]));
+        }
     }
-    
+
+    static int pack(int x, int y) {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    static int unpackX(int cell) {
+        return cell >> 16;
+    }
+
+    static int unpackY(int cell) {
+        return (short) cell;
+    }
+
+    private void occupy(int x, int y) {
+        if (!cells.increment(x, y)) {
+            outOfBounds++;
+        }
+    }
+
+    private void vacate(int x, int y) {
+        if (!cells.decrement(x, y)) {
+            outOfBounds--;
+        }
+    }
+
     public void move() {
-        Point newHead = nextHead();
-        body.addFirst(newHead);
+        int head = ring[headIndex];
+        int x = unpackX(head) + currentDirection.dx;
+        int y = unpackY(head) + currentDirection.dy;
+
         if (growthPending > 0) {
             growthPending--;
+            if (length == ring.length) {
+                expand();
+            }
+            length++;
         } else {
-            body.removeLast();
+            // 先让出尾巴，新头会写进尾巴腾出的槽位
+            int tail = ring[(headIndex + length - 1) & (ring.length - 1)];
+            vacate(unpackX(tail), unpackY(tail));
+        }
+
+        headIndex = (headIndex - 1) & (ring.length - 1);
+        ring[headIndex] = pack(x, y);
+        occupy(x, y);
+        moveCount++;
+    }
+
+    private void expand() {
+        int[] bigger = new int[ring.length << 1];
+        int mask = ring.length - 1;
+        for (int i = 0; i < length; i++) {
+            bigger[i] = ring[(headIndex + i) & mask];
         }
+        ring = bigger;
+        headIndex = 0;
+    }
+
+    /**
+     * 把整条蛇从占用表中撤下（World 换蛇时调用）
+     */
+    public void release() {
+        int mask = ring.length - 1;
+        for (int i = 0; i < length; i++) {
+            int cell = ring[(headIndex + i) & mask];
+            vacate(unpackX(cell), unpackY(cell));
+        }
+        length = 0;
     }
     
     public void changeDirection(Direction newDir) {
@@ -48,27 +143,115 @@ public class Snake {
         }
     }
     
+    /**
+     * 从头到尾遍历蛇身；Point 在遍历时按需创建
+     */
     public Iterable<Point> getBody() {
-        return body;
+        return () -> new Iterator<Point>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < length;
+            }
+
+            @Override
+            public Point next() {
+                if (i >= length) {
+                    throw new NoSuchElementException();
+                }
+                int cell = ring[(headIndex + i++) & (ring.length - 1)];
+                return new Point(unpackX(cell), unpackY(cell));
+            }
+        };
+    }
+    
+    /**
+     * 从头到尾复制蛇身（打包坐标，见 unpackX/unpackY）
+     */
+    public int[] copyCells() {
+        int[] copy = new int[length];
+        int mask = ring.length - 1;
+        for (int i = 0; i < length; i++) {
+            copy[i] = ring[(headIndex + i) & mask];
+        }
+        return copy;
+    }
+
+    /**
+     * 第 i 节（0 为蛇头）的打包坐标
+     */
+    public int getCell(int i) {
+        return ring[(headIndex + i) & (ring.length - 1)];
+    }
+
+    /**
+     * 累计移动步数；第 i 步之后新占的格子就是蛇身最前面的若干节
+     */
+    public long getMoveCount() {
+        return moveCount;
+    }
+    
+    public int getGrowthPending() {
+        return growthPending;
     }
     
     public Direction getCurrentDirection() {
         return currentDirection;
     }
     
+    /**
+     * 这条蛇的输入队列：输入线程写入，tick 线程每次取一个有效转向
+     */
+    public InputQueue getInputQueue() {
+        return inputs;
+    }
+    
+    /**
+     * 返回蛇头坐标的副本；热路径请用 getHeadX()/getHeadY()
+     */
     public Point getHead() {
-        return body.peekFirst();
+        return new Point(getHeadX(), getHeadY());
+    }
+
+    public int getHeadX() {
+        return unpackX(ring[headIndex]);
+    }
+
+    public int getHeadY() {
+        return unpackY(ring[headIndex]);
+    }
+
+    public CellCounter getCells() {
+        return cells;
     }
     
     public boolean iscontains(Point p) {
-        return body.contains(p);
+        return contains(p.x, p.y);
     }
     
     public boolean contains(Point p) {
-        return body.contains(p);
+        return contains(p.x, p.y);
+    }
+
+    public boolean contains(int x, int y) {
+        if (cells.inBounds(x, y)) {
+            return cells.get(x, y) > 0;
+        }
+        if (outOfBounds == 0) {
+            return false;
+        }
+        int target = pack(x, y);
+        int mask = ring.length - 1;
+        for (int i = 0; i < length; i++) {
+            if (ring[(headIndex + i) & mask] == target) {
+                return true;
+            }
+        }
+        return false;
     }
     
     public int getLength() {
-        return body.size();
+        return length;
     }
-}
\ No newline at end of file
+}
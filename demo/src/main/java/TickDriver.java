@@ -0,0 +1,127 @@
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 固定步长的tick驱动：按绝对时间表（起点 + n * 周期）调度，自动补偿漂移；
+ * 落后太多时最多连补 maxCatchUpTicks 个tick，其余直接跳过。
+ * 虚拟时钟下用 runVirtual 同步跑，不睡眠
+ */
+public class TickDriver {
+    private final GameClock clock;
+    private final long periodNanos;
+    private final int maxCatchUpTicks;
+    private final BooleanSupplier step;   // 返回false时停止驱动
+
+    private volatile boolean active = false;
+    private Thread thread;
+    private volatile long ticks = 0;
+    private volatile long skippedTicks = 0;
+
+    public TickDriver(GameClock clock, long periodNanos, int maxCatchUpTicks, BooleanSupplier step) {
+        if (periodNanos <= 0) {
+            throw new IllegalArgumentException("tick周期必须为正数");
+        }
+        this.clock = clock;
+        this.periodNanos = periodNanos;
+        this.maxCatchUpTicks = Math.max(1, maxCatchUpTicks);
+        this.step = step;
+    }
+
+    /**
+     * 在独立线程上按真实时间驱动（第一个tick立即执行）
+     */
+    public synchronized void start(String threadName) {
+        if (active) {
+            return;
+        }
+        active = true;
+        thread = new Thread(this::runRealTime, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void runRealTime() {
+        long next = clock.nanoTime();
+        while (active) {
+            long now = clock.nanoTime();
+            long wait = next - now;
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+
+            // 落后超过补帧上限时丢弃多出的tick，避免卡顿后连续狂跑
+            long behind = -wait / periodNanos;
+            if (behind > maxCatchUpTicks) {
+                long skip = behind - maxCatchUpTicks;
+                next += skip * periodNanos;
+                skippedTicks += skip;
+            }
+
+            if (!step.getAsBoolean()) {
+                active = false;
+                break;
+            }
+            ticks++;
+            next += periodNanos;
+        }
+    }
+
+    /**
+     * 虚拟时间模式：在调用线程上连续执行，每个tick把时钟推进一个周期
+     * @return 实际执行的tick数
+     */
+    public long runVirtual(VirtualClock virtualClock, long maxTicks) {
+        active = true;
+        long executed = 0;
+        while (active && executed < maxTicks) {
+            if (!step.getAsBoolean()) {
+                break;
+            }
+            executed++;
+            ticks++;
+            virtualClock.advance(periodNanos);
+        }
+        active = false;
+        return executed;
+    }
+
+    /**
+     * 请求停止（不等待线程结束，可以在step内部调用）
+     */
+    public void stop() {
+        active = false;
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * 等待驱动线程结束
+     */
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        Thread t = thread;
+        if (t == null || t == Thread.currentThread()) {
+            return true;
+        }
+        t.join(timeoutMillis);
+        return !t.isAlive();
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * 以tick编号为时间的分层时间轮：4层、每层64格，覆盖 64^4 个tick，更远的放进溢出链表。
+ * 定时事件挂在格子的双向循环链表上，添加和取消都是 O(1)；
+ * 每推进一个tick只处理当前格子，低层转完一圈时把上一层对应格子的事件重新分配下来。
+ * 不是线程安全的，只在tick线程上使用
+ */
+public class TimingWheel {
+    private static final int LEVELS = 4;
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final Timer[][] wheels = new Timer[LEVELS][SLOTS];
+    private final Timer overflow = new Timer(null, 0, 0);
+    private final Timer firing = new Timer(null, 0, 0);   // 正在触发的事件，允许回调里取消
+    private long now;
+    private int size = 0;
+
+    /**
+     * 一个定时事件；period 大于0 时为周期事件
+     */
+    public static final class Timer {
+        private final Runnable action;
+        private final long period;
+        private long deadline;
+        private Timer prev = this;
+        private Timer next = this;
+        private boolean scheduled;
+
+        private Timer(Runnable action, long deadline, long period) {
+            this.action = action;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * 下一次触发的tick编号
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public long getPeriod() {
+            return period;
+        }
+
+        public boolean isScheduled() {
+            return scheduled;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+        }
+
+        private void append(Timer sentinel) {
+            prev = sentinel.prev;
+            next = sentinel;
+            sentinel.prev.next = this;
+            sentinel.prev = this;
+        }
+    }
+
+    public TimingWheel(long startTick) {
+        this.now = startTick;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheels[level][slot] = new Timer(null, 0, 0);
+            }
+        }
+    }
+
+    /**
+     * delayTicks 个tick之后触发一次（至少1个tick）
+     */
+    public Timer schedule(long delayTicks, Runnable action) {
+        return add(new Timer(action, now + Math.max(1, delayTicks), 0));
+    }
+
+    /**
+     * delayTicks 个tick之后第一次触发，之后每 periodTicks 个tick触发一次
+     */
+    public Timer scheduleRepeating(long delayTicks, long periodTicks, Runnable action) {
+        if (periodTicks <= 0) {
+            throw new IllegalArgumentException("周期必须为正数");
+        }
+        return add(new Timer(action, now + Math.max(1, delayTicks), periodTicks));
+    }
+
+    /**
+     * 取消事件（在回调里取消自己或同一tick的其他事件也可以）
+     * @return 事件原本还在等待触发时返回true
+     */
+    public boolean cancel(Timer timer) {
+        if (timer == null || !timer.scheduled) {
+            return false;
+        }
+        timer.unlink();
+        timer.scheduled = false;
+        size--;
+        return true;
+    }
+
+    private Timer add(Timer timer) {
+        timer.scheduled = true;
+        size++;
+        place(timer);
+        return timer;
+    }
+
+    /**
+     * 按离现在的距离放进对应层的格子
+     */
+    private void place(Timer timer) {
+        long delta = timer.deadline - now;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (BITS * (level + 1))) {
+                int slot = (int) (timer.deadline >>> (BITS * level)) & SLOT_MASK;
+                timer.append(wheels[level][slot]);
+                return;
+            }
+        }
+        timer.append(overflow);
+    }
+
+    /**
+     * 推进到 tick（含），依次触发到期的事件
+     */
+    public void advanceTo(long tick) {
+        while (now < tick) {
+            advance();
+        }
+    }
+
+    /**
+     * 推进一个tick并触发到期的事件
+     */
+    public void advance() {
+        now++;
+        cascade(1);
+        Timer slot = wheels[0][(int) now & SLOT_MASK];
+        if (slot.next == slot) {
+            return;
+        }
+
+        // 先整体挪到 firing 链表，回调里新加的事件不会在本轮触发
+        splice(slot, firing);
+        while (firing.next != firing) {
+            Timer timer = firing.next;
+            timer.unlink();
+            if (timer.period > 0) {
+                // 先排好下一次，回调里取消自己才有效
+                timer.deadline += timer.period;
+                place(timer);
+            } else {
+                timer.scheduled = false;
+                size--;
+            }
+            timer.action.run();
+        }
+    }
+
+    /**
+     * 把当前时间改成 tick（重新开局、从关键帧恢复时用），等待中的事件保持剩余的tick数不变；
+     * O(事件数)，不能在事件回调里调用
+     */
+    public void rebase(long tick) {
+        long shift = tick - now;
+        if (shift == 0) {
+            return;
+        }
+        Timer pending = new Timer(null, 0, 0);
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                splice(wheels[level][slot], pending);
+            }
+        }
+        splice(overflow, pending);
+        now = tick;
+        while (pending.next != pending) {
+            Timer timer = pending.next;
+            timer.unlink();
+            timer.deadline += shift;
+            place(timer);
+        }
+    }
+
+    /**
+     * 低一层刚转完一圈时，把本层当前格子的事件重新分配到下层
+     */
+    private void cascade(int level) {
+        if ((now & ((1L << (BITS * level)) - 1)) != 0) {
+            return;
+        }
+        if (level < LEVELS) {
+            cascade(level + 1);
+            redistribute(wheels[level][(int) (now >>> (BITS * level)) & SLOT_MASK]);
+        } else {
+            redistribute(overflow);
+        }
+    }
+
+    private void redistribute(Timer sentinel) {
+        if (sentinel.next == sentinel) {
+            return;
+        }
+        Timer pending = new Timer(null, 0, 0);
+        splice(sentinel, pending);
+        while (pending.next != pending) {
+            Timer timer = pending.next;
+            timer.unlink();
+            place(timer);
+        }
+    }
+
+    private static void splice(Timer from, Timer to) {
+        if (from.next == from) {
+            return;
+        }
+        Timer first = from.next;
+        Timer last = from.prev;
+        first.prev = to.prev;
+        to.prev.next = first;
+        last.next = to;
+        to.prev = last;
+        from.next = from;
+        from.prev = from;
+    }
+
+    /**
+     * 已经推进到的tick
+     */
+    public long getCurrentTick() {
+        return now;
+    }
+
+    /**
+     * 等待触发的事件数
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * 虚拟时钟：时间只在 advance 时前进，无头模拟用它按CPU速度跑tick
+ */
+public class VirtualClock implements GameClock {
+    private volatile long now;
+
+    public VirtualClock() {
+        this(0L);
+    }
+
+    public VirtualClock(long startNanos) {
+        this.now = startNanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    public void advance(long nanos) {
+        now += nanos;
+    }
+}
@@ -5,7 +5,7 @@ public class Wall {
     private final List<Point> cells;
 
     public Wall(List<Point> cells) {
-        this.cells = cells;
+        this.cells = List.copyOf(cells);
     }
 
     public List<Point> getCells() {
@@ -1,48 +1,122 @@
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.random.RandomGenerator;
 
 public class World {
 
+    // 占用网格的层标志（每格一个字节）
+    private static final byte LAYER_FOOD = 1;
+    private static final byte LAYER_OBSTACLE = 2;
+
     private final int width;
     private final int height;
 
+    // 场上所有蛇共用一张占用计数表；snake 是主蛇（单人模式下唯一的蛇）
     private Snake snake;
-    private List<Food> foods = new ArrayList<>();  // 改为食物列表
+    private final List<Snake> snakes = new ArrayList<>();
+    private final List<Snake> snakesView = Collections.unmodifiableList(snakes);
+    // 食物列表（紧凑存放，供渲染遍历）+ 按格子编号的下标索引
+    private final List<Food> foods = new ArrayList<>();
+    private final List<Food> foodsView = Collections.unmodifiableList(foods);
+    private final int[] foodSlot;
+    private int foodVersion;   // 食物每次变动加一
     private Obstacles obstacles;
 
+    // 分层占用网格：食物/障碍物用位标志，蛇身由 Snake 直接写入计数表
+    private final byte[] layers;
+    private final CellCounter snakeCells;
+
+    // 空闲格子索引，随占用网格同步维护
+    private final FreeCellSet freeCells;
+
+    // 连通性分析器（按需创建，GameLoop 和 WorldManager 共用）
+    private ConnectivityChecker connectivityChecker;
+
+    // 变化日志（GameLoop 设置），食物和障碍物的变动记在这里
+    private WorldChanges changes;
+
     public World(int width, int height) {
         this.width = width;
         this.height = height;
+        this.layers = new byte[width * height];
+        this.snakeCells = new CellCounter(width, height);
+        this.snakeCells.setTransitionListener(this::refreshFree);
+        this.freeCells = new FreeCellSet(width * height);
+        this.foodSlot = new int[width * height];
+        Arrays.fill(foodSlot, -1);
     }
 
     public boolean inBounds(Point p) {
-        return p.x >= 0 && p.x < width &&
-               p.y >= 0 && p.y < height;
+        return inBounds(p.x, p.y);
+    }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && x < width &&
+               y >= 0 && y < height;
+    }
+
+    private int index(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * 某格的占用层变化后同步空闲索引
+     */
+    private void refreshFree(int idx) {
+        if (layers[idx] != 0 || snakeCells.get(idx) > 0) {
+            freeCells.remove(idx);
+        } else {
+            freeCells.add(idx);
+        }
     }
 
     public boolean isOccupied(Point p) {
-        if (!inBounds(p)) return true;
+        return isOccupied(p.x, p.y);
+    }
+
+    /**
+     * 单次下标查询：越界视为占用
+     */
+    public boolean isOccupied(int x, int y) {
+        if (!inBounds(x, y)) return true;
 
-        if (snake != null && snake.iscontains(p)) {
-            return true;
+        int idx = index(x, y);
+        return layers[idx] != 0 || snakeCells.get(idx) > 0;
+    }
+
+    /**
+     * 一步判定蛇头所在格子：越界 / 蛇身 / 障碍物 / 食物 / 空地
+     * 蛇头自己在占用表里占一格，所以计数大于1才是撞到身体；
+     * 移动时尾巴先让出，走进刚空出的尾巴格子不算相撞
+     */
+    public CellType classifyHead(Snake snake) {
+        int x = snake.getHeadX();
+        int y = snake.getHeadY();
+        if (!inBounds(x, y)) {
+            return CellType.OUT_OF_BOUNDS;
         }
-        
-        // 检查是否被任何食物占据
-        for (Food food : foods) {
-            if (food.getPosition().equals(p)) {
-                return true;
-            }
+        int idx = index(x, y);
+        if (snakeCells.get(idx) > 1) {
+            return CellType.SNAKE_BODY;
         }
-        
-        if (obstacles != null && obstacles.getAllCells().contains(p)) {
-            return true;
+        if ((layers[idx] & LAYER_OBSTACLE) != 0) {
+            return CellType.OBSTACLE;
         }
-        return false;
+        if ((layers[idx] & LAYER_FOOD) != 0) {
+            return CellType.FOOD;
+        }
+        return CellType.EMPTY;
     }
 
     public boolean isEmpty(Point p) {
-        return inBounds(p) && !isOccupied(p);
+        return !isOccupied(p.x, p.y);
+    }
+
+    public boolean isEmpty(int x, int y) {
+        return !isOccupied(x, y);
     }
 
     public List<Point> getEmptyPoints(
@@ -58,59 +132,258 @@ public class World {
 
         for (int x = minX; x <= maxX; x++) {
             for (int y = minY; y <= maxY; y++) {
-                Point p = new Point(x, y);
-                if (isEmpty(p)) {
-                    result.add(p);
+                if (isEmpty(x, y)) {
+                    result.add(new Point(x, y));
                 }
             }
         }
         return result;
     }
 
+    public int getFreeCellCount() {
+        return freeCells.size();
+    }
+
+    /**
+     * 空闲格子编号（按索引内部顺序），回放关键帧用
+     */
+    int[] copyFreeCellOrder() {
+        int[] order = new int[freeCells.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = freeCells.get(i);
+        }
+        return order;
+    }
+
+    void restoreFreeCellOrder(int[] order) {
+        freeCells.reorder(order);
+    }
+
+    /**
+     * 从全图空格中等概率随机取一个，O(1)；没有空格时返回null
+     */
+    public Point randomFreeCell(RandomGenerator random) {
+        int idx = freeCells.random(random);
+        return idx < 0 ? null : new Point(idx % width, idx / width);
+    }
+
+    /**
+     * 设置主蛇（替换旧的主蛇）。蛇必须用本世界的 getSnakeCells() 创建，移动时直接更新占用表
+     */
     public void setSnake(Snake snake) {
+        checkOwnership(snake);
+        // 先从占用网格中撤下旧蛇
+        if (this.snake != null && this.snake != snake) {
+            snakes.remove(this.snake);
+            this.snake.release();
+        }
         this.snake = snake;
+        if (snake != null && !snakes.contains(snake)) {
+            snakes.add(0, snake);
+        }
+        journalFullRefresh();
     }
 
+    /**
+     * 再放一条蛇进来（竞技场模式）；场上还没有蛇时它就是主蛇
+     */
+    public void addSnake(Snake snake) {
+        checkOwnership(snake);
+        if (snake == null || snakes.contains(snake)) {
+            return;
+        }
+        snakes.add(snake);
+        if (this.snake == null) {
+            this.snake = snake;
+        }
+        journalFullRefresh();
+    }
+
+    /**
+     * 撤下一条蛇；撤下的是主蛇时由剩下的第一条接替
+     */
+    public void removeSnake(Snake snake) {
+        if (!snakes.remove(snake)) {
+            return;
+        }
+        snake.release();
+        if (this.snake == snake) {
+            this.snake = snakes.isEmpty() ? null : snakes.get(0);
+        }
+        journalFullRefresh();
+    }
+
+    void setChangeJournal(WorldChanges changes) {
+        this.changes = changes;
+    }
+
+    private void journal(int kind, Point p, int extra) {
+        if (changes != null) {
+            changes.add(kind, p.x, p.y, extra);
+        }
+    }
+
+    private void journalFullRefresh() {
+        if (changes != null) {
+            changes.markFullRefresh();
+        }
+    }
+
+    private void checkOwnership(Snake snake) {
+        if (snake != null && snake.getCells() != snakeCells) {
+            throw new IllegalArgumentException("蛇不属于这个世界的占用表");
+        }
+    }
+
+    /**
+     * 放置食物；同一格子只保留一个食物，后放的覆盖先放的
+     */
     public void addFood(Food food) {
-        if (food != null) {
-            foods.add(food);
+        if (food == null) {
+            return;
+        }
+        Point p = food.getPosition();
+        if (!inBounds(p)) {
+            return;
         }
+        int idx = index(p.x, p.y);
+        int slot = foodSlot[idx];
+        journal(WorldChanges.FOOD_ADDED, p, food.getType().ordinal());
+        if (slot >= 0) {
+            foods.set(slot, food);
+            foodVersion++;
+            return;
+        }
+        foodVersion++;
+        foodSlot[idx] = foods.size();
+        foods.add(food);
+        layers[idx] |= LAYER_FOOD;
+        refreshFree(idx);
     }
-    
+
     public void setFoods(List<Food> foods) {
-        this.foods = new ArrayList<>(foods);
+        List<Food> incoming = new ArrayList<>(foods);
+        clearFoods();
+        for (Food food : incoming) {
+            addFood(food);
+        }
     }
-    
+
     public void clearFoods() {
+        foodVersion++;
+        for (Food food : foods) {
+            Point p = food.getPosition();
+            journal(WorldChanges.FOOD_REMOVED, p, 0);
+            int idx = index(p.x, p.y);
+            foodSlot[idx] = -1;
+            layers[idx] &= ~LAYER_FOOD;
+            refreshFree(idx);
+        }
         foods.clear();
     }
-    
+
     public boolean removeFoodAt(Point position) {
-        return foods.removeIf(food -> food.getPosition().equals(position));
+        if (!inBounds(position)) {
+            return false;
+        }
+        int idx = index(position.x, position.y);
+        int slot = foodSlot[idx];
+        if (slot < 0) {
+            return false;
+        }
+
+        foodVersion++;
+        journal(WorldChanges.FOOD_REMOVED, position, 0);
+        // 与末尾元素交换后删除，保持列表紧凑
+        int last = foods.size() - 1;
+        if (slot != last) {
+            Food moved = foods.get(last);
+            foods.set(slot, moved);
+            Point mp = moved.getPosition();
+            foodSlot[index(mp.x, mp.y)] = slot;
+        }
+        foods.remove(last);
+        foodSlot[idx] = -1;
+        layers[idx] &= ~LAYER_FOOD;
+        refreshFree(idx);
+        return true;
     }
 
     public void setObstacles(Obstacles obstacles) {
+        // 换层：清掉旧障碍物，再标记新障碍物
+        if (this.obstacles != null) {
+            markObstacles(this.obstacles, false);
+        }
         this.obstacles = obstacles;
+        if (obstacles != null) {
+            markObstacles(obstacles, true);
+        }
+        if (changes != null) {
+            changes.markObstaclesChanged();
+        }
+    }
+
+    private void markObstacles(Obstacles obstacles, boolean present) {
+        for (Point p : obstacles.getAllCells()) {
+            if (!inBounds(p)) {
+                continue;
+            }
+            int idx = index(p.x, p.y);
+            if (present) {
+                layers[idx] |= LAYER_OBSTACLE;
+            } else {
+                layers[idx] &= ~LAYER_OBSTACLE;
+            }
+            refreshFree(idx);
+        }
     }
 
     public Snake getSnake() {
         return snake;
     }
 
+    /**
+     * 场上所有蛇的只读视图
+     */
+    public List<Snake> getSnakes() {
+        return snakesView;
+    }
+
+    public CellCounter getSnakeCells() {
+        return snakeCells;
+    }
+
+    /**
+     * 场上食物的只读视图（顺序不保证）
+     */
     public List<Food> getFoods() {
-        return foods;
+        return foodsView;
     }
-    
+
+    public int getFoodVersion() {
+        return foodVersion;
+    }
+
     /**
      * 获取指定位置的食物（如果存在）
      */
     public Food getFoodAt(Point position) {
-        for (Food food : foods) {
-            if (food.getPosition().equals(position)) {
-                return food;
-            }
+        return getFoodAt(position.x, position.y);
+    }
+
+    public Food getFoodAt(int x, int y) {
+        if (!inBounds(x, y)) {
+            return null;
+        }
+        int slot = foodSlot[index(x, y)];
+        return slot >= 0 ? foods.get(slot) : null;
+    }
+
+    public ConnectivityChecker getConnectivityChecker() {
+        if (connectivityChecker == null) {
+            connectivityChecker = new ConnectivityChecker(width, height);
         }
-        return null;
+        return connectivityChecker;
     }
 
     public Obstacles getObstacles() {
@@ -124,4 +397,4 @@ public class World {
     public int getHeight() {
         return height;
     }
-}
\ No newline at end of file
+}
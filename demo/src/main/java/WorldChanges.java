@@ -0,0 +1,103 @@
+import java.util.Arrays;
+
+/**
+ * 一个tick内世界的变化日志：新蛇头、让出的尾巴、出现/消失的食物、障碍物层替换、得分变化。
+ * 条目按发生顺序紧凑存放（每条3个int：种类、打包坐标、附加值），
+ * 渲染器等只需处理变化的格子，不必每帧扫描整个世界
+ */
+public class WorldChanges {
+    /**
+     * 订阅每个tick的变化日志；回调在tick线程上执行，日志在下一个tick结束前有效
+     */
+    public interface Listener {
+        void onChanges(WorldChanges changes);
+    }
+
+    public static final int HEAD_ADDED = 0;
+    public static final int TAIL_REMOVED = 1;
+    public static final int FOOD_ADDED = 2;     // 附加值为 FoodType 序号
+    public static final int FOOD_REMOVED = 3;
+
+    private int[] entries = new int[48];
+    private int size = 0;
+    private long tick;
+    private boolean obstaclesChanged;
+    private boolean fullRefresh = true;     // 第一次或换蛇后，消费者应整体重读一次
+    private int scoreDelta;
+
+    void clear(long tick) {
+        this.tick = tick;
+        size = 0;
+        obstaclesChanged = false;
+        fullRefresh = false;
+        scoreDelta = 0;
+    }
+
+    void add(int kind, int x, int y, int extra) {
+        int offset = size * 3;
+        if (offset + 3 > entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[offset] = kind;
+        entries[offset + 1] = Snake.pack(x, y);
+        entries[offset + 2] = extra;
+        size++;
+    }
+
+    void markObstaclesChanged() {
+        obstaclesChanged = true;
+    }
+
+    void markFullRefresh() {
+        fullRefresh = true;
+    }
+
+    void setScoreDelta(int scoreDelta) {
+        this.scoreDelta = scoreDelta;
+    }
+
+    /**
+     * 日志对应的tick编号（包括上个tick结束后、这个tick之前发生的变化）
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getKind(int i) {
+        return entries[i * 3];
+    }
+
+    public int getX(int i) {
+        return Snake.unpackX(entries[i * 3 + 1]);
+    }
+
+    public int getY(int i) {
+        return Snake.unpackY(entries[i * 3 + 1]);
+    }
+
+    public int getExtra(int i) {
+        return entries[i * 3 + 2];
+    }
+
+    /**
+     * 障碍物层被整体替换（新层见 World.getObstacles()）
+     */
+    public boolean isObstaclesChanged() {
+        return obstaclesChanged;
+    }
+
+    /**
+     * 发生了日志无法逐格描述的变化（如换蛇），消费者应整体重读世界
+     */
+    public boolean isFullRefresh() {
+        return fullRefresh;
+    }
+
+    public int getScoreDelta() {
+        return scoreDelta;
+    }
+}
@@ -2,17 +2,33 @@ import java.awt.Point;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 public class WorldManager {
     private final World world;
     private final FoodSpawner foodSpawner;
     private final ObstacleGenerator obstacleGenerator;
+    private final long seed;
+    private final GameRandom random;
+    private boolean verbose = true;
     
+    /**
+     * 随机种子开局
+     */
     public WorldManager(int width, int height) {
+        this(width, height, new Random().nextLong());
+    }
+    
+    /**
+     * 同一个种子得到完全相同的一局：食物和障碍物各用从种子拆分出的独立随机流
+     */
+    public WorldManager(int width, int height, long seed) {
         this.world = new World(width, height);
-        this.foodSpawner = new FoodSpawner(3); // 最小距离为3
-        this.obstacleGenerator = new ObstacleGenerator(world);
+        this.seed = seed;
+        this.random = new GameRandom(seed);
+        this.foodSpawner = new FoodSpawner(3, random.split()); // 最小距离为3
+        this.obstacleGenerator = new ObstacleGenerator(world, random.split());
     }
     
     public void initializeGame() {
@@ -24,7 +40,7 @@ public class WorldManager {
             startPoint = new Point(5, 5); // 如果中心点不行，使用固定位置
         }
 
-        Snake snake = new Snake(startPoint, Direction.RIGHT, 3);
+        Snake snake = new Snake(startPoint, Direction.RIGHT, 3, world.getSnakeCells());
         world.setSnake(snake);
         
         // 2. 初始生成障碍物（避开蛇的位置）
@@ -47,7 +63,7 @@ public class WorldManager {
         
         int totalCells = world.getWidth() * world.getHeight();
         int maxObstacleCells = (int)(totalCells * 0.15);
-        Obstacles obstacles = obstacleGenerator.generate(maxObstacleCells, positionsToAvoid);
+        Obstacles obstacles = obstacleGenerator.generateConnected(maxObstacleCells, positionsToAvoid);
         
         // 3. 移除蛇头朝向方向三个格子内的障碍物
         //clearObstaclesInFrontOfSnake(snake, obstacles);
@@ -60,9 +76,11 @@ public class WorldManager {
             world.addFood(food);
         }
         
-        System.out.println("游戏初始化完成！");
-        System.out.println("- 生成了" + obstacles.getAllCells().size() + "个障碍物");
-        System.out.println("- 生成了" + initialFoods.size() + "个初始食物");
+        if (verbose) {
+            System.out.println("游戏初始化完成！");
+            System.out.println("- 生成了" + obstacles.getCellCount() + "个障碍物");
+            System.out.println("- 生成了" + initialFoods.size() + "个初始食物");
+        }
     }
     
     /**
@@ -115,49 +133,30 @@ public class WorldManager {
     
     public boolean checkConnectivity() {
         Snake snake = world.getSnake();
-        Point head = snake.getHead();
-        
-        // 使用BFS检查连通性
-        boolean[][] visited = new boolean[world.getWidth()][world.getHeight()];
-        List<Point> queue = new ArrayList<>();
-        queue.add(head);
-        visited[head.x][head.y] = true;
         
-        int emptyCellsReached = 0;
-        
-        while (!queue.isEmpty()) {
-            Point current = queue.remove(0);
-            
-            // 检查四个方向
-            for (Direction dir : Direction.values()) {
-                Point neighbor = new Point(current.x + dir.dx, current.y + dir.dy);
-                
-                if (world.inBounds(neighbor) && 
-                    !visited[neighbor.x][neighbor.y] && 
-                    !world.isOccupied(neighbor)) {
-                    
-                    visited[neighbor.x][neighbor.y] = true;
-                    queue.add(neighbor);
-                    emptyCellsReached++;
-                }
-            }
-        }
+        ConnectivityChecker.Result result = world.getConnectivityChecker()
+                .analyze(world, snake.getHeadX(), snake.getHeadY());
         
         // 如果还能到达一定数量的空单元格，认为地图仍然连通
-        int totalEmpty = countEmptyCells();
-        return emptyCellsReached >= Math.min(5, totalEmpty);
+        return result.getReachable() >= Math.min(5, result.getTotalEmpty());
     }
     
-    private int countEmptyCells() {
-        int count = 0;
-        for (int x = 0; x < world.getWidth(); x++) {
-            for (int y = 0; y < world.getHeight(); y++) {
-                if (world.isEmpty(new Point(x, y))) {
-                    count++;
-                }
-            }
-        }
-        return count;
+    /**
+     * 关闭控制台输出（批量模拟用）
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    /**
+     * 从本局种子再拆分一条独立随机流（例如给AI策略用）
+     */
+    public GameRandom newRandomStream() {
+        return random.split();
     }
     
     public World getWorld() {
@@ -0,0 +1,188 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 某个tick结束时世界的不可变快照，由 GameLoop 在模拟线程上生成并通过 volatile 引用整体替换发布。
+ * 渲染和打印只读快照，不会看到模拟进行到一半的世界，也不会拖慢tick。
+ * 障碍物层本身不可变，直接共享引用；蛇身复制一份；食物没变时（食物版本号相同）
+ * 食物列表和按坐标的小哈希表沿用上一个快照的，变了才重建，开销只与食物数有关
+ */
+public final class WorldSnapshot {
+    private final int width;
+    private final int height;
+    private final long tick;
+    private final int[] snakeCells;       // 打包坐标，头在前；没有蛇时为空
+    private final Direction direction;
+    private final List<Food> foods;
+    private final int[] foodKeys;         // 开放寻址哈希表：打包坐标，-1 为空位；getFoodAt O(1)
+    private final Food[] foodValues;
+    private final int foodVersion;
+    private final Obstacles obstacles;
+    private final int score;
+    private final boolean gameOver;
+    private final String gameOverReason;
+    private final long timeUntilFoodRefresh;
+    private final long timeUntilMapRefresh;
+
+    private volatile long[] snakeMask;    // 蛇身位图，第一次查询时生成
+
+    WorldSnapshot(World world, WorldSnapshot previous, long tick, int score, boolean gameOver,
+                  String gameOverReason, long timeUntilFoodRefresh, long timeUntilMapRefresh) {
+        this.width = world.getWidth();
+        this.height = world.getHeight();
+        this.tick = tick;
+        Snake snake = world.getSnake();
+        this.snakeCells = snake != null ? snake.copyCells() : new int[0];
+        this.direction = snake != null ? snake.getCurrentDirection() : null;
+        this.foodVersion = world.getFoodVersion();
+        if (previous != null && previous.foodVersion == foodVersion
+                && previous.width == width && previous.height == height) {
+            this.foods = previous.foods;
+            this.foodKeys = previous.foodKeys;
+            this.foodValues = previous.foodValues;
+        } else {
+            this.foods = Collections.unmodifiableList(new ArrayList<>(world.getFoods()));
+            // 容量取不小于食物数两倍的2的幂，装载率不超过一半
+            int capacity = Integer.highestOneBit(Math.max(2, foods.size() * 2 - 1)) << 1;
+            this.foodKeys = new int[capacity];
+            this.foodValues = new Food[capacity];
+            Arrays.fill(foodKeys, -1);
+            for (Food food : foods) {
+                Point p = food.getPosition();
+                if (inBounds(p.x, p.y)) {
+                    int key = Snake.pack(p.x, p.y);
+                    int slot = slotOf(key, capacity);
+                    while (foodKeys[slot] != -1) {
+                        slot = (slot + 1) & (capacity - 1);
+                    }
+                    foodKeys[slot] = key;
+                    foodValues[slot] = food;
+                }
+            }
+        }
+        this.obstacles = world.getObstacles();
+        this.score = score;
+        this.gameOver = gameOver;
+        this.gameOverReason = gameOverReason;
+        this.timeUntilFoodRefresh = timeUntilFoodRefresh;
+        this.timeUntilMapRefresh = timeUntilMapRefresh;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public boolean hasSnake() {
+        return snakeCells.length > 0;
+    }
+
+    public int getSnakeLength() {
+        return snakeCells.length;
+    }
+
+    /**
+     * 第 i 节（0 为蛇头）的打包坐标，用 Snake.unpackX/unpackY 解开
+     */
+    public int getSnakeCell(int i) {
+        return snakeCells[i];
+    }
+
+    public int getHeadX() {
+        return Snake.unpackX(snakeCells[0]);
+    }
+
+    public int getHeadY() {
+        return Snake.unpackY(snakeCells[0]);
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public boolean snakeContains(int x, int y) {
+        if (!inBounds(x, y)) {
+            return false;
+        }
+        long[] mask = snakeMask;
+        if (mask == null) {
+            mask = new long[(width * height + 63) >>> 6];
+            for (int cell : snakeCells) {
+                int cx = Snake.unpackX(cell);
+                int cy = Snake.unpackY(cell);
+                if (inBounds(cx, cy)) {
+                    int idx = cy * width + cx;
+                    mask[idx >>> 6] |= 1L << idx;
+                }
+            }
+            snakeMask = mask;
+        }
+        int idx = y * width + x;
+        return (mask[idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    public List<Food> getFoods() {
+        return foods;
+    }
+
+    public Food getFoodAt(int x, int y) {
+        if (!inBounds(x, y)) {
+            return null;
+        }
+        int key = Snake.pack(x, y);
+        int mask = foodKeys.length - 1;
+        for (int slot = slotOf(key, foodKeys.length); foodKeys[slot] != -1; slot = (slot + 1) & mask) {
+            if (foodKeys[slot] == key) {
+                return foodValues[slot];
+            }
+        }
+        return null;
+    }
+
+    private static int slotOf(int key, int capacity) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+
+    public Obstacles getObstacles() {
+        return obstacles;
+    }
+
+    public boolean isBlocked(int x, int y) {
+        return obstacles != null && obstacles.isBlocked(x, y);
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public String getGameOverReason() {
+        return gameOverReason;
+    }
+
+    public long getTimeUntilFoodRefresh() {
+        return timeUntilFoodRefresh;
+    }
+
+    public long getTimeUntilMapRefresh() {
+        return timeUntilMapRefresh;
+    }
+}